@@ -2,6 +2,15 @@ plugins {
     id("com.android.application")
 }
 
+// Servidor de sincronização (ecos-da-cama-sync), configurável com -PsyncApiUrlDebug / -PsyncApiUrlRelease
+// ou no gradle.properties. 10.0.2.2 é o PC visto de dentro do emulador. O release só aceita HTTPS;
+// sem URL configurada, ele sai com a sincronização desligada.
+val syncApiUrlDebug = (findProperty("syncApiUrlDebug") as String?) ?: "http://10.0.2.2:8787"
+val syncApiUrlRelease = (findProperty("syncApiUrlRelease") as String?) ?: ""
+require(syncApiUrlRelease.isEmpty() || syncApiUrlRelease.startsWith("https://")) {
+    "syncApiUrlRelease precisa usar https:// (recebido: $syncApiUrlRelease)"
+}
+
 android {
     namespace = "devandroid.bender.ecosdacama"
     compileSdk = 33
@@ -23,12 +32,23 @@ android {
     }
 
     buildTypes {
+        debug {
+            buildConfigField("String", "SYNC_API_URL", "\"$syncApiUrlDebug\"")
+        }
         release {
+            buildConfigField("String", "SYNC_API_URL", "\"$syncApiUrlRelease\"")
             isMinifyEnabled = false
             proguardFiles(getDefaultProguardFile("proguard-android-optimize.txt"), "proguard-rules.pro")
         }
     }
 
+    testOptions {
+        unitTests {
+            // Robolectric: os testes do banco rodam no SQLite de verdade, dentro da JVM
+            isIncludeAndroidResources = true
+        }
+    }
+
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
@@ -59,4 +79,8 @@ dependencies {
     implementation ("com.github.bumptech.glide:glide:4.16.0")
     annotationProcessor ("com.github.bumptech.glide:compiler:4.16.0")
     implementation("com.squareup.okhttp3:okhttp:4.11.0")
+    implementation("androidx.work:work-runtime:2.8.1")
+    implementation("androidx.security:security-crypto:1.0.0")
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.11.1")
 }
@@ -3,20 +3,37 @@ package devandroid.bender.ecosdacama.database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
+import devandroid.bender.ecosdacama.model.AlteracaoSync;
+import devandroid.bender.ecosdacama.model.Interpretacao;
+import devandroid.bender.ecosdacama.model.RelatorioManutencao;
 import devandroid.bender.ecosdacama.model.Sonho;
+import devandroid.bender.ecosdacama.util.Metricas;
+import devandroid.bender.ecosdacama.util.SonhoVetorizador;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
 
 public class EcosDaCamaDB extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "sonhos_db";
-    private static final int DATABASE_VERSION = 3; // Incrementado para incluir a coluna 'significado'
+    private static final int DATABASE_VERSION = 10; // Incrementado para apagar o rascunho junto com o sonho
     public static final String TABLE_SONHOS = "sonhos";
     public static final String COLUMN_ID = "id";
     public static final String COLUMN_TITULO = "titulo";
@@ -24,6 +41,98 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
     public static final String COLUMN_DATA = "data";
     public static final String COLUMN_HORA = "hora";
     public static final String COLUMN_SIGNIFICADO = "significado"; // Nova coluna para o significado
+    public static final String COLUMN_VETOR = "vetor"; // Vetor de similaridade (BLOB de floats)
+    public static final String COLUMN_PREVIA = "previa"; // Início da descrição, exibido nos cards da lista
+
+    // O card mostra no máximo 4 linhas; isso sobra com folga e mantém a leitura da lista leve
+    public static final int TAMANHO_PREVIA = 280;
+
+    // Contagem de sonhos por dia, mantida por triggers a cada insert/update/delete em 'sonhos'
+    public static final String TABLE_SONHOS_POR_DIA = "sonhos_por_dia";
+    public static final String COLUMN_DIA = "dia"; // yyyy-MM-dd
+    public static final String COLUMN_TOTAL = "total";
+
+    // Rascunho do editor, gravado em segundo plano enquanto o usuário digita
+    public static final String TABLE_RASCUNHOS = "rascunhos";
+    public static final String COLUMN_SONHO_ID = "sonho_id"; // -1 para um sonho novo
+    public static final String COLUMN_ATUALIZADO_EM = "atualizado_em";
+
+    // Sincronização entre aparelhos: cada sonho tem um id estável e uma versão por linha.
+    // 'seq_local' é a posição da linha na fila de envio (0 = veio do servidor, nada a enviar).
+    // 'atualizado_em' (ms) também existe em 'sonhos' e decide os conflitos: a última escrita vence.
+    public static final String COLUMN_UUID = "uuid";
+    public static final String COLUMN_VERSAO = "versao";
+    public static final String COLUMN_SEQ_LOCAL = "seq_local";
+
+    // Exclusões ainda não enviadas (e as já recebidas), para que um sonho apagado não volte
+    public static final String TABLE_SONHOS_EXCLUIDOS = "sonhos_excluidos";
+    public static final String COLUMN_EXCLUIDO_EM = "excluido_em";
+
+    // Contador da fila de envio e checkpoints da sincronização
+    public static final String TABLE_SYNC_ESTADO = "sync_estado";
+    public static final String COLUMN_CHAVE = "chave";
+    public static final String COLUMN_VALOR = "valor";
+    public static final String SYNC_SEQ = "seq";
+    public static final String SYNC_PUSH_SONHOS = "push_sonhos"; // maior seq_local de 'sonhos' já aceito pelo servidor
+    public static final String SYNC_PUSH_EXCLUSOES = "push_exclusoes"; // idem para 'sonhos_excluidos'
+    public static final String SYNC_PULL_CURSOR = "pull_cursor"; // cursor do servidor já aplicado aqui
+
+    // Histórico de interpretações: uma linha por pedido, em qualquer estilo
+    public static final String TABLE_INTERPRETACOES = "interpretacoes";
+    public static final String COLUMN_ESTILO = "estilo"; // posição em 'prompt_style_options'; -1 = desconhecido
+    public static final String COLUMN_MODELO = "modelo";
+    public static final String COLUMN_CRIADO_EM = "criado_em";
+    public static final String COLUMN_TEXTO = "texto";
+    public static final String COLUMN_LOTOFACIL = "lotofacil"; // números separados por vírgula
+    public static final String COLUMN_MEGA_SENA = "mega_sena";
+    public static final String COLUMN_DIA_DE_SORTE = "dia_de_sorte";
+    public static final String COLUMN_HASH_DESCRICAO = "hash_descricao";
+
+    // Tempo de cada consulta e escrita, exibido na tela de métricas
+    private static final Metricas.Histograma T_GET_ALL_SONHOS = Metricas.histograma("db.getAllSonhos");
+    private static final Metricas.Histograma T_INSERT_SONHO = Metricas.histograma("db.insertSonho");
+    private static final Metricas.Histograma T_UPDATE_SONHO = Metricas.histograma("db.updateSonho");
+    private static final Metricas.Histograma T_DELETE_SONHO = Metricas.histograma("db.deleteSonho");
+    private static final Metricas.Histograma T_DELETE_SONHOS = Metricas.histograma("db.deleteSonhos");
+    private static final Metricas.Histograma T_GET_SONHOS_POR_IDS = Metricas.histograma("db.getSonhosPorIds");
+    private static final Metricas.Histograma T_REGISTRAR_INTERPRETACOES = Metricas.histograma("db.registrarInterpretacoes");
+    private static final Metricas.Histograma T_GET_INTERPRETACOES_POR_ESTILO = Metricas.histograma("db.getInterpretacoesPorEstilo");
+    private static final Metricas.Histograma T_SALVAR_RASCUNHO = Metricas.histograma("db.salvarRascunho");
+    private static final Metricas.Histograma T_GET_RASCUNHO = Metricas.histograma("db.getRascunho");
+    private static final Metricas.Histograma T_SEARCH_SONHOS = Metricas.histograma("db.searchSonhos");
+    private static final Metricas.Histograma T_GET_SONHOS_RESUMO = Metricas.histograma("db.getSonhosResumo");
+    private static final Metricas.Histograma T_GET_SONHO_POR_ID = Metricas.histograma("db.getSonhoPorId");
+    private static final Metricas.Histograma T_BUSCAR_SONHOS_SEMELHANTES = Metricas.histograma("db.buscarSonhosSemelhantes");
+    private static final Metricas.Histograma T_GET_CONTAGEM_POR_DIA = Metricas.histograma("db.getContagemPorDia");
+    private static final Metricas.Histograma T_GET_SONHOS_DO_DIA = Metricas.histograma("db.getSonhosDoDia");
+    private static final Metricas.Histograma T_GET_ALTERACOES_PENDENTES = Metricas.histograma("db.getAlteracoesPendentes");
+    private static final Metricas.Histograma T_APLICAR_ALTERACOES_REMOTAS = Metricas.histograma("db.aplicarAlteracoesRemotas");
+    private static final Metricas.Histograma T_EXECUTAR_MANUTENCAO = Metricas.histograma("db.executarManutencao");
+    private static final Metricas.Contador C_CONFLITOS_LOCAL_VENCEU = Metricas.contador("sync.conflitos_local_venceu");
+
+    // Bem abaixo do limite de 999 parâmetros por comando do SQLite
+    private static final int TAMANHO_LOTE_IN = 500;
+
+    private static final long AUTO_VACUUM_INCREMENTAL = 2; // valor de 'PRAGMA auto_vacuum'
+    private static final int LIMITE_MENSAGENS_INTEGRIDADE = 5;
+
+    // Colunas lidas nas listagens; o 'vetor' fica de fora para não carregar BLOBs à toa
+    private static final String[] COLUNAS_SONHO = {
+            COLUMN_ID, COLUMN_TITULO, COLUMN_SONHO, COLUMN_DATA, COLUMN_HORA, COLUMN_SIGNIFICADO};
+
+    // Estilos que já têm interpretação, como bits (1 << estilo); usa o índice de 'interpretacoes'
+    private static final String ESTILOS_INTERPRETADOS =
+            "(SELECT ifnull(sum(DISTINCT 1 << " + COLUMN_ESTILO + "), 0) FROM " + TABLE_INTERPRETACOES +
+                    " WHERE " + COLUMN_SONHO_ID + " = " + TABLE_SONHOS + "." + COLUMN_ID +
+                    " AND " + COLUMN_ESTILO + " >= 0)";
+
+    // Colunas dos cards: sem a descrição completa nem o significado
+    private static final String[] COLUNAS_RESUMO = {
+            COLUMN_ID, COLUMN_TITULO, COLUMN_DATA, COLUMN_HORA, COLUMN_PREVIA, ESTILOS_INTERPRETADOS};
+
+    private static final String[] COLUNAS_INTERPRETACAO = {
+            COLUMN_SONHO_ID, COLUMN_ESTILO, COLUMN_MODELO, COLUMN_CRIADO_EM, COLUMN_TEXTO,
+            COLUMN_LOTOFACIL, COLUMN_MEGA_SENA, COLUMN_DIA_DE_SORTE, COLUMN_HASH_DESCRICAO};
 
     private static final String TABLE_CREATE =
             "CREATE TABLE " + TABLE_SONHOS + " (" +
@@ -32,7 +141,13 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
                     COLUMN_SONHO + " TEXT, " +
                     COLUMN_DATA + " TEXT, " +
                     COLUMN_HORA + " TEXT, " +
-                    COLUMN_SIGNIFICADO + " TEXT);"; // Coluna 'significado' adicionada
+                    COLUMN_SIGNIFICADO + " TEXT, " +
+                    COLUMN_VETOR + " BLOB, " +
+                    COLUMN_PREVIA + " TEXT, " +
+                    COLUMN_UUID + " TEXT, " +
+                    COLUMN_VERSAO + " INTEGER DEFAULT 0, " +
+                    COLUMN_ATUALIZADO_EM + " INTEGER, " +
+                    COLUMN_SEQ_LOCAL + " INTEGER DEFAULT 0);";
 
     private static final String TABLE_ALTER_ADD_TITULO =
             "ALTER TABLE " + TABLE_SONHOS + " ADD COLUMN " + COLUMN_TITULO + " TEXT;";
@@ -40,13 +155,221 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
     private static final String TABLE_ALTER_ADD_SIGNIFICADO =
             "ALTER TABLE " + TABLE_SONHOS + " ADD COLUMN " + COLUMN_SIGNIFICADO + " TEXT;";
 
-    public EcosDaCamaDB(Context context) {
+    private static final String TABLE_ALTER_ADD_VETOR =
+            "ALTER TABLE " + TABLE_SONHOS + " ADD COLUMN " + COLUMN_VETOR + " BLOB;";
+
+    private static final String TABLE_ALTER_ADD_PREVIA =
+            "ALTER TABLE " + TABLE_SONHOS + " ADD COLUMN " + COLUMN_PREVIA + " TEXT;";
+
+    private static final String[] TABLE_ALTER_ADD_SYNC = {
+            "ALTER TABLE " + TABLE_SONHOS + " ADD COLUMN " + COLUMN_UUID + " TEXT;",
+            "ALTER TABLE " + TABLE_SONHOS + " ADD COLUMN " + COLUMN_VERSAO + " INTEGER DEFAULT 0;",
+            "ALTER TABLE " + TABLE_SONHOS + " ADD COLUMN " + COLUMN_ATUALIZADO_EM + " INTEGER;",
+            "ALTER TABLE " + TABLE_SONHOS + " ADD COLUMN " + COLUMN_SEQ_LOCAL + " INTEGER DEFAULT 0;"
+    };
+
+    private static final String PREVIA_PREENCHER =
+            "UPDATE " + TABLE_SONHOS + " SET " + COLUMN_PREVIA + " = substr(" + COLUMN_SONHO + ", 1, " + TAMANHO_PREVIA + ");";
+
+    private static final String TABLE_CREATE_SONHOS_POR_DIA =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SONHOS_POR_DIA + " (" +
+                    COLUMN_DIA + " TEXT PRIMARY KEY, " +
+                    COLUMN_TOTAL + " INTEGER NOT NULL);";
+
+    private static final String TABLE_CREATE_RASCUNHOS =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_RASCUNHOS + " (" +
+                    COLUMN_SONHO_ID + " INTEGER PRIMARY KEY, " +
+                    COLUMN_TITULO + " TEXT, " +
+                    COLUMN_SONHO + " TEXT, " +
+                    COLUMN_DATA + " TEXT, " +
+                    COLUMN_HORA + " TEXT, " +
+                    COLUMN_ATUALIZADO_EM + " INTEGER);";
+
+    // O rascunho de um sonho existente sai junto com ele; o de um sonho novo (sonho_id = -1) não é afetado
+    private static final String TRIGGER_RASCUNHOS_DELETE =
+            "CREATE TRIGGER IF NOT EXISTS trg_rascunhos_delete AFTER DELETE ON " + TABLE_SONHOS +
+                    " BEGIN DELETE FROM " + TABLE_RASCUNHOS + " WHERE " + COLUMN_SONHO_ID + " = OLD." + COLUMN_ID + "; END;";
+
+    // Rascunhos que sobraram de sonhos excluídos antes do trigger existir
+    private static final String RASCUNHOS_ORFAOS_REMOVER =
+            "DELETE FROM " + TABLE_RASCUNHOS + " WHERE " + COLUMN_SONHO_ID + " > 0 AND " + COLUMN_SONHO_ID +
+                    " NOT IN (SELECT " + COLUMN_ID + " FROM " + TABLE_SONHOS + ");";
+
+    private static final String INDEX_CREATE_DATA =
+            "CREATE INDEX IF NOT EXISTS idx_sonhos_data ON " + TABLE_SONHOS + " (" + COLUMN_DATA + ");";
+
+    private static final String TABLE_CREATE_INTERPRETACOES =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_INTERPRETACOES + " (" +
+                    COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    COLUMN_SONHO_ID + " INTEGER NOT NULL, " +
+                    COLUMN_ESTILO + " INTEGER NOT NULL, " +
+                    COLUMN_MODELO + " TEXT NOT NULL DEFAULT '', " +
+                    COLUMN_CRIADO_EM + " INTEGER NOT NULL, " +
+                    COLUMN_TEXTO + " TEXT NOT NULL, " +
+                    COLUMN_LOTOFACIL + " TEXT, " +
+                    COLUMN_MEGA_SENA + " TEXT, " +
+                    COLUMN_DIA_DE_SORTE + " TEXT, " +
+                    COLUMN_HASH_DESCRICAO + " INTEGER, " +
+                    "UNIQUE (" + COLUMN_SONHO_ID + ", " + COLUMN_ESTILO + ", " + COLUMN_MODELO + ", " + COLUMN_CRIADO_EM + "));";
+
+    // A restrição UNIQUE já cria o índice (sonho_id, estilo, modelo, criado_em) usado nas consultas por sonho
+
+    private static final String TRIGGER_INTERPRETACOES_DELETE =
+            "CREATE TRIGGER IF NOT EXISTS trg_interpretacoes_delete AFTER DELETE ON " + TABLE_SONHOS +
+                    " BEGIN DELETE FROM " + TABLE_INTERPRETACOES + " WHERE " + COLUMN_SONHO_ID + " = OLD." + COLUMN_ID + "; END;";
+
+    // O significado que já existia vira a primeira entrada do histórico, com estilo desconhecido
+    private static final String INTERPRETACOES_PREENCHER =
+            "INSERT OR IGNORE INTO " + TABLE_INTERPRETACOES + " (" +
+                    COLUMN_SONHO_ID + ", " + COLUMN_ESTILO + ", " + COLUMN_CRIADO_EM + ", " + COLUMN_TEXTO + ") " +
+                    "SELECT " + COLUMN_ID + ", " + Interpretacao.ESTILO_DESCONHECIDO + ", ifnull(" + COLUMN_ATUALIZADO_EM + ", 0), " +
+                    COLUMN_SIGNIFICADO + " FROM " + TABLE_SONHOS +
+                    " WHERE " + COLUMN_SIGNIFICADO + " IS NOT NULL AND " + COLUMN_SIGNIFICADO + " != '';";
+
+    private static final String TABLE_CREATE_SONHOS_EXCLUIDOS =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SONHOS_EXCLUIDOS + " (" +
+                    COLUMN_UUID + " TEXT PRIMARY KEY, " +
+                    COLUMN_EXCLUIDO_EM + " INTEGER NOT NULL, " +
+                    COLUMN_SEQ_LOCAL + " INTEGER NOT NULL DEFAULT 0);";
+
+    private static final String TABLE_CREATE_SYNC_ESTADO =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_ESTADO + " (" +
+                    COLUMN_CHAVE + " TEXT PRIMARY KEY, " +
+                    COLUMN_VALOR + " INTEGER NOT NULL);";
+
+    private static final String[] INDICES_SYNC = {
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_sonhos_uuid ON " + TABLE_SONHOS + " (" + COLUMN_UUID + ");",
+            "CREATE INDEX IF NOT EXISTS idx_sonhos_seq_local ON " + TABLE_SONHOS + " (" + COLUMN_SEQ_LOCAL + ");",
+            "CREATE INDEX IF NOT EXISTS idx_sonhos_excluidos_seq_local ON " + TABLE_SONHOS_EXCLUIDOS + " (" + COLUMN_SEQ_LOCAL + ");"
+    };
+
+    private static final String AGORA_MS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    private static final String PROXIMO_SEQ =
+            "UPDATE " + TABLE_SYNC_ESTADO + " SET " + COLUMN_VALOR + " = " + COLUMN_VALOR + " + 1 " +
+                    "WHERE " + COLUMN_CHAVE + " = '" + SYNC_SEQ + "'; ";
+
+    private static final String SEQ_ATUAL =
+            "(SELECT " + COLUMN_VALOR + " FROM " + TABLE_SYNC_ESTADO + " WHERE " + COLUMN_CHAVE + " = '" + SYNC_SEQ + "')";
+
+    // Nunca anda para trás, mesmo se o relógio do aparelho voltar
+    private static final String PROXIMO_ATUALIZADO_EM =
+            "max(" + AGORA_MS + ", ifnull(OLD." + COLUMN_ATUALIZADO_EM + ", 0) + 1)";
+
+    private static String algumCampoMudou() {
+        String[] campos = {COLUMN_TITULO, COLUMN_SONHO, COLUMN_DATA, COLUMN_HORA, COLUMN_SIGNIFICADO};
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < campos.length; i++) {
+            if (i > 0) sb.append(" OR ");
+            sb.append("NEW.").append(campos[i]).append(" IS NOT OLD.").append(campos[i]);
+        }
+        return sb.append(")").toString();
+    }
+
+    /*
+     * Qualquer escrita local em 'sonhos' entra sozinha na fila de envio, sem mudar quem grava.
+     * Alterações vindas do servidor já trazem o próprio 'uuid' e 'atualizado_em', e por isso não
+     * disparam os triggers de insert e update (e não são reenviadas).
+     */
+    private static final String[] TRIGGERS_SYNC = {
+            "CREATE TRIGGER IF NOT EXISTS trg_sync_insert AFTER INSERT ON " + TABLE_SONHOS +
+                    " WHEN NEW." + COLUMN_UUID + " IS NULL BEGIN " + PROXIMO_SEQ +
+                    "UPDATE " + TABLE_SONHOS + " SET " + COLUMN_UUID + " = lower(hex(randomblob(16))), " +
+                    COLUMN_VERSAO + " = 1, " + COLUMN_ATUALIZADO_EM + " = " + AGORA_MS + ", " +
+                    COLUMN_SEQ_LOCAL + " = " + SEQ_ATUAL + " WHERE " + COLUMN_ID + " = NEW." + COLUMN_ID + "; END;",
+            "CREATE TRIGGER IF NOT EXISTS trg_sync_update AFTER UPDATE OF " +
+                    COLUMN_TITULO + ", " + COLUMN_SONHO + ", " + COLUMN_DATA + ", " + COLUMN_HORA + ", " + COLUMN_SIGNIFICADO +
+                    " ON " + TABLE_SONHOS +
+                    " WHEN NEW." + COLUMN_ATUALIZADO_EM + " IS OLD." + COLUMN_ATUALIZADO_EM + " AND " + algumCampoMudou() +
+                    " BEGIN " + PROXIMO_SEQ +
+                    "UPDATE " + TABLE_SONHOS + " SET " + COLUMN_VERSAO + " = OLD." + COLUMN_VERSAO + " + 1, " +
+                    COLUMN_ATUALIZADO_EM + " = " + PROXIMO_ATUALIZADO_EM + ", " +
+                    COLUMN_SEQ_LOCAL + " = " + SEQ_ATUAL + " WHERE " + COLUMN_ID + " = NEW." + COLUMN_ID + "; END;",
+            "CREATE TRIGGER IF NOT EXISTS trg_sync_delete AFTER DELETE ON " + TABLE_SONHOS +
+                    " WHEN OLD." + COLUMN_UUID + " IS NOT NULL BEGIN " + PROXIMO_SEQ +
+                    "INSERT OR REPLACE INTO " + TABLE_SONHOS_EXCLUIDOS + " (" +
+                    COLUMN_UUID + ", " + COLUMN_EXCLUIDO_EM + ", " + COLUMN_SEQ_LOCAL + ") " +
+                    "VALUES (OLD." + COLUMN_UUID + ", " + PROXIMO_ATUALIZADO_EM + ", " + SEQ_ATUAL + "); END;"
+    };
+
+    // Sonhos que já existiam antes da sincronização entram na fila na ordem em que foram criados
+    private static final String SYNC_PREENCHER =
+            "UPDATE " + TABLE_SONHOS + " SET " + COLUMN_UUID + " = lower(hex(randomblob(16))), " +
+                    COLUMN_VERSAO + " = 1, " + COLUMN_ATUALIZADO_EM + " = " + AGORA_MS + ", " +
+                    COLUMN_SEQ_LOCAL + " = " + COLUMN_ID + " WHERE " + COLUMN_UUID + " IS NULL;";
+
+    private static final String SYNC_SEQ_INICIAR =
+            "INSERT OR REPLACE INTO " + TABLE_SYNC_ESTADO + " (" + COLUMN_CHAVE + ", " + COLUMN_VALOR + ") " +
+                    "SELECT '" + SYNC_SEQ + "', ifnull(max(" + COLUMN_SEQ_LOCAL + "), 0) FROM " + TABLE_SONHOS + ";";
+
+    // A coluna 'data' guarda "dd/MM/yyyy"; o agregado usa "yyyy-MM-dd" para ordenar e filtrar por intervalo
+    private static String diaIso(String coluna) {
+        return "substr(" + coluna + ", 7, 4) || '-' || substr(" + coluna + ", 4, 2) || '-' || substr(" + coluna + ", 1, 2)";
+    }
+
+    private static String incrementarDia(String coluna) {
+        return "INSERT OR IGNORE INTO " + TABLE_SONHOS_POR_DIA + " (" + COLUMN_DIA + ", " + COLUMN_TOTAL + ") " +
+                "SELECT " + diaIso(coluna) + ", 0 WHERE " + coluna + " LIKE '__/__/____'; " +
+                "UPDATE " + TABLE_SONHOS_POR_DIA + " SET " + COLUMN_TOTAL + " = " + COLUMN_TOTAL + " + 1 " +
+                "WHERE " + COLUMN_DIA + " = " + diaIso(coluna) + " AND " + coluna + " LIKE '__/__/____'; ";
+    }
+
+    private static String decrementarDia(String coluna) {
+        return "UPDATE " + TABLE_SONHOS_POR_DIA + " SET " + COLUMN_TOTAL + " = " + COLUMN_TOTAL + " - 1 " +
+                "WHERE " + COLUMN_DIA + " = " + diaIso(coluna) + "; " +
+                "DELETE FROM " + TABLE_SONHOS_POR_DIA + " WHERE " + COLUMN_DIA + " = " + diaIso(coluna) +
+                " AND " + COLUMN_TOTAL + " <= 0; ";
+    }
+
+    private static final String[] TRIGGERS_SONHOS_POR_DIA = {
+            "CREATE TRIGGER IF NOT EXISTS trg_sonhos_por_dia_insert AFTER INSERT ON " + TABLE_SONHOS +
+                    " BEGIN " + incrementarDia("NEW." + COLUMN_DATA) + "END;",
+            "CREATE TRIGGER IF NOT EXISTS trg_sonhos_por_dia_delete AFTER DELETE ON " + TABLE_SONHOS +
+                    " BEGIN " + decrementarDia("OLD." + COLUMN_DATA) + "END;",
+            "CREATE TRIGGER IF NOT EXISTS trg_sonhos_por_dia_update AFTER UPDATE OF " + COLUMN_DATA + " ON " + TABLE_SONHOS +
+                    " WHEN OLD." + COLUMN_DATA + " IS NOT NEW." + COLUMN_DATA +
+                    " BEGIN " + decrementarDia("OLD." + COLUMN_DATA) + incrementarDia("NEW." + COLUMN_DATA) + "END;"
+    };
+
+    private static final String SONHOS_POR_DIA_RECALCULAR =
+            "INSERT OR REPLACE INTO " + TABLE_SONHOS_POR_DIA + " (" + COLUMN_DIA + ", " + COLUMN_TOTAL + ") " +
+                    "SELECT " + diaIso(COLUMN_DATA) + ", COUNT(*) FROM " + TABLE_SONHOS +
+                    " WHERE " + COLUMN_DATA + " LIKE '__/__/____' GROUP BY 1;";
+
+    private static EcosDaCamaDB instancia;
+
+    /**
+     * Um único helper por processo, com a conexão aberta até o processo terminar. O
+     * SQLiteDatabase já serializa o acesso entre threads; fechá-lo ao fim de cada método fazia
+     * uma chamada da thread principal derrubar a conexão no meio de uma transação de outra thread.
+     */
+    public static synchronized EcosDaCamaDB getInstance(Context context) {
+        if (instancia == null) {
+            instancia = new EcosDaCamaDB(context.getApplicationContext());
+        }
+        return instancia;
+    }
+
+    // Só para os testes: cada teste começa com um banco novo
+    @VisibleForTesting
+    static synchronized void descartarInstancia() {
+        if (instancia != null) {
+            instancia.close();
+            instancia = null;
+        }
+    }
+
+    private EcosDaCamaDB(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        criarAgregadoPorDia(db);
+        criarRascunhos(db);
+        criarSincronizacao(db);
+        criarInterpretacoes(db);
         Log.d("EcosDaCamaDB", "Banco de dados criado.");
     }
 
@@ -70,16 +393,143 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
                 Log.e("EcosDaCamaDB", "Erro ao adicionar coluna 'significado': " + e.getMessage());
             }
         }
+        if (oldVersion < 4) {
+            try {
+                db.execSQL(TABLE_ALTER_ADD_VETOR);
+                preencherVetores(db);
+                Log.i("EcosDaCamaDB", "Coluna 'vetor' adicionada e preenchida.");
+            } catch (SQLException e) {
+                Log.e("EcosDaCamaDB", "Erro ao adicionar coluna 'vetor': " + e.getMessage());
+            }
+        }
+        if (oldVersion < 5) {
+            try {
+                criarAgregadoPorDia(db);
+                db.execSQL(SONHOS_POR_DIA_RECALCULAR);
+                Log.i("EcosDaCamaDB", "Tabela 'sonhos_por_dia' criada e preenchida.");
+            } catch (SQLException e) {
+                Log.e("EcosDaCamaDB", "Erro ao criar tabela 'sonhos_por_dia': " + e.getMessage());
+            }
+        }
+        if (oldVersion < 6) {
+            try {
+                db.execSQL(TABLE_ALTER_ADD_PREVIA);
+                db.execSQL(PREVIA_PREENCHER);
+                Log.i("EcosDaCamaDB", "Coluna 'previa' adicionada e preenchida.");
+            } catch (SQLException e) {
+                Log.e("EcosDaCamaDB", "Erro ao adicionar coluna 'previa': " + e.getMessage());
+            }
+        }
+        if (oldVersion < 7) {
+            try {
+                db.execSQL(TABLE_CREATE_RASCUNHOS);
+                Log.i("EcosDaCamaDB", "Tabela 'rascunhos' criada.");
+            } catch (SQLException e) {
+                Log.e("EcosDaCamaDB", "Erro ao criar tabela 'rascunhos': " + e.getMessage());
+            }
+        }
+        if (oldVersion < 8) {
+            try {
+                for (String alter : TABLE_ALTER_ADD_SYNC) {
+                    db.execSQL(alter);
+                }
+                db.execSQL(SYNC_PREENCHER);
+                criarSincronizacao(db);
+                Log.i("EcosDaCamaDB", "Colunas de sincronização adicionadas e preenchidas.");
+            } catch (SQLException e) {
+                Log.e("EcosDaCamaDB", "Erro ao adicionar colunas de sincronização: " + e.getMessage());
+            }
+        }
+        if (oldVersion < 9) {
+            try {
+                criarInterpretacoes(db);
+                db.execSQL(INTERPRETACOES_PREENCHER);
+                Log.i("EcosDaCamaDB", "Tabela 'interpretacoes' criada e preenchida.");
+            } catch (SQLException e) {
+                Log.e("EcosDaCamaDB", "Erro ao criar tabela 'interpretacoes': " + e.getMessage());
+            }
+        }
+        if (oldVersion < 10) {
+            try {
+                criarRascunhos(db);
+                db.execSQL(RASCUNHOS_ORFAOS_REMOVER);
+                Log.i("EcosDaCamaDB", "Trigger de rascunhos criado e rascunhos órfãos removidos.");
+            } catch (SQLException e) {
+                Log.e("EcosDaCamaDB", "Erro ao criar trigger de rascunhos: " + e.getMessage());
+            }
+        }
+    }
+
+    private void criarAgregadoPorDia(SQLiteDatabase db) {
+        db.execSQL(TABLE_CREATE_SONHOS_POR_DIA);
+        db.execSQL(INDEX_CREATE_DATA);
+        for (String trigger : TRIGGERS_SONHOS_POR_DIA) {
+            db.execSQL(trigger);
+        }
+    }
+
+    private void criarRascunhos(SQLiteDatabase db) {
+        db.execSQL(TABLE_CREATE_RASCUNHOS);
+        db.execSQL(TRIGGER_RASCUNHOS_DELETE);
+    }
+
+    private void criarSincronizacao(SQLiteDatabase db) {
+        db.execSQL(TABLE_CREATE_SONHOS_EXCLUIDOS);
+        db.execSQL(TABLE_CREATE_SYNC_ESTADO);
+        db.execSQL(SYNC_SEQ_INICIAR);
+        for (String indice : INDICES_SYNC) {
+            db.execSQL(indice);
+        }
+        for (String trigger : TRIGGERS_SYNC) {
+            db.execSQL(trigger);
+        }
+    }
+
+    private void criarInterpretacoes(SQLiteDatabase db) {
+        db.execSQL(TABLE_CREATE_INTERPRETACOES);
+        db.execSQL(TRIGGER_INTERPRETACOES_DELETE);
+    }
+
+    // Calcula o vetor dos sonhos que já existiam antes da coluna 'vetor'
+    private void preencherVetores(SQLiteDatabase db) {
+        Cursor cursor = db.query(TABLE_SONHOS, new String[]{COLUMN_ID, COLUMN_TITULO, COLUMN_SONHO},
+                COLUMN_VETOR + " IS NULL", null, null, null, null);
+        try {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                float[] vetor = SonhoVetorizador.vetorizar(cursor.getString(1), cursor.getString(2));
+                values.clear();
+                values.put(COLUMN_VETOR, SonhoVetorizador.paraBytes(vetor));
+                db.update(TABLE_SONHOS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(cursor.getInt(0))});
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public static String calcularPrevia(String descricao) {
+        if (descricao == null) return "";
+        if (descricao.length() <= TAMANHO_PREVIA) return descricao;
+        int fim = TAMANHO_PREVIA;
+        // Não corta um par surrogate (ex.: emoji) ao meio
+        if (Character.isHighSurrogate(descricao.charAt(fim - 1))) fim--;
+        return descricao.substring(0, fim);
+    }
+
+    // Vetor do sonho gravado junto com a linha, sempre que o texto é salvo
+    public static byte[] calcularVetor(Sonho sonho) {
+        return SonhoVetorizador.paraBytes(SonhoVetorizador.vetorizar(sonho.getTitulo(), sonho.getDescricao()));
     }
 
     // Método para pegar todos os sonhos do banco
     public List<Sonho> getAllSonhos() {
         List<Sonho> sonhosList = new ArrayList<>();
+        long inicioMedicao = Metricas.agora();
         SQLiteDatabase db = this.getReadableDatabase();
 
         Cursor cursor = null;
         try {
-            cursor = db.query(TABLE_SONHOS, null, null, null, null, null, null);
+            cursor = db.query(TABLE_SONHOS, COLUNAS_SONHO, null, null, null, null, null);
 
             if (cursor != null && cursor.moveToFirst()) {
                 do {
@@ -116,12 +566,13 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
+            T_GET_ALL_SONHOS.registrarDesde(inicioMedicao);
         }
         return sonhosList;
     }
 
     public long insertSonho(Sonho sonho) {
+        long inicioMedicao = Metricas.agora();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_TITULO, sonho.getTitulo());
@@ -129,6 +580,8 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
         values.put(COLUMN_DATA, sonho.getData());
         values.put(COLUMN_HORA, sonho.getHora());
         values.put(COLUMN_SIGNIFICADO, sonho.getSignificado());
+        values.put(COLUMN_VETOR, calcularVetor(sonho));
+        values.put(COLUMN_PREVIA, calcularPrevia(sonho.getDescricao()));
 
         long newRowId = -1;
         try {
@@ -137,12 +590,13 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
         } catch (SQLException e) {
             Log.e("insertSonho", "Erro ao inserir sonho: " + e.getMessage());
         } finally {
-            db.close();
+            T_INSERT_SONHO.registrarDesde(inicioMedicao);
         }
         return newRowId;
     }
 
     public int updateSonho(Sonho sonho) {
+        long inicioMedicao = Metricas.agora();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_TITULO, sonho.getTitulo());
@@ -150,6 +604,8 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
         values.put(COLUMN_DATA, sonho.getData());
         values.put(COLUMN_HORA, sonho.getHora());
         values.put(COLUMN_SIGNIFICADO, sonho.getSignificado());
+        values.put(COLUMN_VETOR, calcularVetor(sonho));
+        values.put(COLUMN_PREVIA, calcularPrevia(sonho.getDescricao()));
 
         int rowsAffected = 0;
         try {
@@ -158,12 +614,13 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
         } catch (SQLException e) {
             Log.e("updateSonho", "Erro ao atualizar sonho: " + e.getMessage());
         } finally {
-            db.close();
+            T_UPDATE_SONHO.registrarDesde(inicioMedicao);
         }
         return rowsAffected;
     }
 
     public void deleteSonho(int sonhoId) {
+        long inicioMedicao = Metricas.agora();
         SQLiteDatabase db = this.getWritableDatabase();
         try {
             int rowsDeleted = db.delete(TABLE_SONHOS, COLUMN_ID + " = ?", new String[]{String.valueOf(sonhoId)});
@@ -171,13 +628,226 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
         } catch (SQLException e) {
             Log.e("deleteSonho", "Erro ao deletar sonho: " + e.getMessage());
         } finally {
-            db.close();
+            T_DELETE_SONHO.registrarDesde(inicioMedicao);
+        }
+    }
+
+    /**
+     * Exclui vários sonhos numa única transação, em lotes de "WHERE id IN (...)".
+     * Retorna quantas linhas foram removidas, ou 0 se a transação falhar.
+     */
+    public int deleteSonhos(List<Integer> ids) {
+        if (ids.isEmpty()) return 0;
+
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getWritableDatabase();
+        int rowsDeleted = 0;
+        db.beginTransaction();
+        try {
+            for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_LOTE_IN) {
+                List<Integer> lote = ids.subList(inicio, Math.min(inicio + TAMANHO_LOTE_IN, ids.size()));
+                rowsDeleted += db.delete(TABLE_SONHOS, COLUMN_ID + " IN (" + placeholders(lote.size()) + ")", paraArgs(lote));
+            }
+            db.setTransactionSuccessful();
+            Log.i("deleteSonhos", ids.size() + " sonhos selecionados deletados. Linhas afetadas: " + rowsDeleted);
+        } catch (SQLException e) {
+            Log.e("deleteSonhos", "Erro ao deletar sonhos: " + e.getMessage());
+            rowsDeleted = 0;
+        } finally {
+            db.endTransaction();
+            T_DELETE_SONHOS.registrarDesde(inicioMedicao);
+        }
+        return rowsDeleted;
+    }
+
+    // Sonhos completos (com descrição e significado) dos ids informados, na ordem do banco
+    public List<Sonho> getSonhosPorIds(List<Integer> ids) {
+        List<Sonho> sonhosList = new ArrayList<>();
+        if (ids.isEmpty()) return sonhosList;
+
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_LOTE_IN) {
+                List<Integer> lote = ids.subList(inicio, Math.min(inicio + TAMANHO_LOTE_IN, ids.size()));
+                cursor = db.query(TABLE_SONHOS, COLUNAS_SONHO,
+                        COLUMN_ID + " IN (" + placeholders(lote.size()) + ")", paraArgs(lote), null, null, COLUMN_ID);
+                while (cursor.moveToNext()) {
+                    Sonho sonhoObj = new Sonho(cursor.getString(1), cursor.getString(2), cursor.getString(3), cursor.getString(4));
+                    sonhoObj.setId(cursor.getInt(0));
+                    sonhoObj.setSignificado(cursor.getString(5));
+                    sonhosList.add(sonhoObj);
+                }
+                cursor.close();
+                cursor = null;
+            }
+        } catch (SQLException e) {
+            Log.e("getSonhosPorIds", "Erro ao buscar sonhos: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_GET_SONHOS_POR_IDS.registrarDesde(inicioMedicao);
+        }
+        return sonhosList;
+    }
+
+    /**
+     * Grava novas interpretações de vários sonhos numa única transação: cada uma entra no
+     * histórico e passa a ser o significado exibido do seu sonho.
+     */
+    public int registrarInterpretacoes(List<Interpretacao> interpretacoes) {
+        if (interpretacoes.isEmpty()) return 0;
+
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getWritableDatabase();
+        int rowsAffected = 0;
+        db.beginTransaction();
+        try {
+            SQLiteStatement update = db.compileStatement(
+                    "UPDATE " + TABLE_SONHOS + " SET " + COLUMN_SIGNIFICADO + " = ? WHERE " + COLUMN_ID + " = ?");
+            for (Interpretacao interpretacao : interpretacoes) {
+                inserirInterpretacao(db, interpretacao);
+                update.bindString(1, interpretacao.getTextoCompleto());
+                update.bindLong(2, interpretacao.getSonhoId());
+                rowsAffected += update.executeUpdateDelete();
+                update.clearBindings();
+            }
+            update.close();
+            db.setTransactionSuccessful();
+            Log.i("registrarInterpretacoes", "Interpretações registradas. Linhas afetadas: " + rowsAffected);
+        } catch (SQLException e) {
+            Log.e("registrarInterpretacoes", "Erro ao registrar interpretações: " + e.getMessage());
+            rowsAffected = 0;
+        } finally {
+            db.endTransaction();
+            T_REGISTRAR_INTERPRETACOES.registrarDesde(inicioMedicao);
         }
+        return rowsAffected;
+    }
+
+    // Para quem já está dentro de uma transação (ex.: a gravação do editor)
+    public static void inserirInterpretacao(SQLiteDatabase db, Interpretacao interpretacao) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_SONHO_ID, interpretacao.getSonhoId());
+        values.put(COLUMN_ESTILO, interpretacao.getEstilo());
+        values.put(COLUMN_MODELO, interpretacao.getModelo());
+        values.put(COLUMN_CRIADO_EM, interpretacao.getCriadoEm());
+        values.put(COLUMN_TEXTO, interpretacao.getTexto());
+        values.put(COLUMN_LOTOFACIL, interpretacao.getLotofacil());
+        values.put(COLUMN_MEGA_SENA, interpretacao.getMegaSena());
+        values.put(COLUMN_DIA_DE_SORTE, interpretacao.getDiaDeSorte());
+        values.put(COLUMN_HASH_DESCRICAO, interpretacao.getHashDescricao());
+        db.insertWithOnConflict(TABLE_INTERPRETACOES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    // A interpretação mais recente de cada estilo já pedido para o sonho
+    public Map<Integer, Interpretacao> getInterpretacoesPorEstilo(int sonhoId) {
+        Map<Integer, Interpretacao> porEstilo = new HashMap<>();
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_INTERPRETACOES, COLUNAS_INTERPRETACAO,
+                    COLUMN_SONHO_ID + " = ?", new String[]{String.valueOf(sonhoId)},
+                    null, null, COLUMN_CRIADO_EM + " DESC");
+            while (cursor.moveToNext()) {
+                int estilo = cursor.getInt(1);
+                if (porEstilo.containsKey(estilo)) continue;
+
+                Interpretacao interpretacao = new Interpretacao(estilo, cursor.getString(2), cursor.getLong(3), cursor.getString(4));
+                interpretacao.setSonhoId(cursor.getInt(0));
+                interpretacao.setNumerosDaSorte(cursor.getString(5), cursor.getString(6), cursor.getString(7));
+                interpretacao.setHashDescricao(cursor.isNull(8) ? null : cursor.getInt(8));
+                porEstilo.put(estilo, interpretacao);
+            }
+        } catch (SQLException e) {
+            Log.e("getInterpretacoesPorEstilo", "Erro ao buscar interpretações: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_GET_INTERPRETACOES_POR_ESTILO.registrarDesde(inicioMedicao);
+        }
+        return porEstilo;
+    }
+
+    /**
+     * Grava (ou substitui) o rascunho do editor. Um rascunho sem título nem descrição
+     * não tem o que preservar, então é apagado em vez de gravado.
+     */
+    public void salvarRascunho(int sonhoId, Sonho rascunho) {
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getWritableDatabase();
+        try {
+            boolean vazio = (rascunho.getTitulo() == null || rascunho.getTitulo().trim().isEmpty())
+                    && (rascunho.getDescricao() == null || rascunho.getDescricao().trim().isEmpty());
+            if (vazio) {
+                db.delete(TABLE_RASCUNHOS, COLUMN_SONHO_ID + " = ?", new String[]{String.valueOf(sonhoId)});
+                return;
+            }
+
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_SONHO_ID, sonhoId);
+            values.put(COLUMN_TITULO, rascunho.getTitulo());
+            values.put(COLUMN_SONHO, rascunho.getDescricao());
+            values.put(COLUMN_DATA, rascunho.getData());
+            values.put(COLUMN_HORA, rascunho.getHora());
+            values.put(COLUMN_ATUALIZADO_EM, System.currentTimeMillis());
+            db.insertWithOnConflict(TABLE_RASCUNHOS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (SQLException e) {
+            Log.e("salvarRascunho", "Erro ao salvar rascunho: " + e.getMessage());
+        } finally {
+            T_SALVAR_RASCUNHO.registrarDesde(inicioMedicao);
+        }
+    }
+
+    public Sonho getRascunho(int sonhoId) {
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        Sonho rascunho = null;
+        try {
+            cursor = db.query(TABLE_RASCUNHOS, new String[]{COLUMN_TITULO, COLUMN_SONHO, COLUMN_DATA, COLUMN_HORA},
+                    COLUMN_SONHO_ID + " = ?", new String[]{String.valueOf(sonhoId)}, null, null, null);
+            if (cursor.moveToFirst()) {
+                rascunho = new Sonho(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3));
+                rascunho.setId(sonhoId);
+            }
+        } catch (SQLException e) {
+            Log.e("getRascunho", "Erro ao buscar rascunho: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_GET_RASCUNHO.registrarDesde(inicioMedicao);
+        }
+        return rascunho;
+    }
+
+    private static String placeholders(int quantidade) {
+        StringBuilder sb = new StringBuilder(quantidade * 2);
+        for (int i = 0; i < quantidade; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    private static String[] paraArgs(List<Integer> ids) {
+        String[] args = new String[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            args[i] = String.valueOf(ids.get(i));
+        }
+        return args;
     }
 
     // Método para pesquisar sonhos com base no título ou descrição
+    // O filtro usa o texto completo, mas só a prévia é lida para a lista
     public List<Sonho> searchSonhos(String query) {
         List<Sonho> sonhosList = new ArrayList<>();
+        long inicioMedicao = Metricas.agora();
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
 
@@ -185,45 +855,554 @@ public class EcosDaCamaDB extends SQLiteOpenHelper {
             String selection = COLUMN_TITULO + " LIKE ? OR " + COLUMN_SONHO + " LIKE ?";
             String[] selectionArgs = {"%" + query + "%", "%" + query + "%"};
 
-            cursor = db.query(TABLE_SONHOS, null, selection, selectionArgs, null, null, null);
+            cursor = db.query(TABLE_SONHOS, COLUNAS_RESUMO, selection, selectionArgs, null, null, null);
+            while (cursor.moveToNext()) {
+                sonhosList.add(lerResumo(cursor));
+            }
+        } catch (SQLException e) {
+            Log.e("searchSonhos", "Erro ao pesquisar sonhos: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_SEARCH_SONHOS.registrarDesde(inicioMedicao);
+        }
+        return sonhosList;
+    }
+
+    // Sonhos para a lista principal: apenas título, data, hora e prévia, sem o texto completo
+    public List<Sonho> getSonhosResumo() {
+        List<Sonho> sonhosList = new ArrayList<>();
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_SONHOS, COLUNAS_RESUMO, null, null, null, null, null);
+            while (cursor.moveToNext()) {
+                sonhosList.add(lerResumo(cursor));
+            }
+        } catch (SQLException e) {
+            Log.e("getSonhosResumo", "Erro ao buscar sonhos: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_GET_SONHOS_RESUMO.registrarDesde(inicioMedicao);
+        }
+        return sonhosList;
+    }
+
+    // Lê uma linha projetada com COLUNAS_RESUMO
+    private static Sonho lerResumo(Cursor cursor) {
+        Sonho sonhoObj = new Sonho(cursor.getString(1), "", cursor.getString(2), cursor.getString(3));
+        sonhoObj.setId(cursor.getInt(0));
+        sonhoObj.setPrevia(cursor.getString(4));
+        sonhoObj.setEstilosInterpretados(cursor.getInt(5));
+        return sonhoObj;
+    }
+
+    public Sonho getSonhoPorId(int sonhoId) {
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        Sonho sonhoObj = null;
+        try {
+            cursor = db.query(TABLE_SONHOS, COLUNAS_SONHO,
+                    COLUMN_ID + " = ?", new String[]{String.valueOf(sonhoId)}, null, null, null);
 
             if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    int idIndex = cursor.getColumnIndex(COLUMN_ID);
-                    int tituloIndex = cursor.getColumnIndex(COLUMN_TITULO);
-                    int sonhoIndex = cursor.getColumnIndex(COLUMN_SONHO);
-                    int dataIndex = cursor.getColumnIndex(COLUMN_DATA);
-                    int horaIndex = cursor.getColumnIndex(COLUMN_HORA);
-                    int significadoIndex = cursor.getColumnIndex(COLUMN_SIGNIFICADO);
+                sonhoObj = new Sonho(cursor.getString(1), cursor.getString(2), cursor.getString(3), cursor.getString(4));
+                sonhoObj.setId(cursor.getInt(0));
+                sonhoObj.setSignificado(cursor.getString(5));
+            }
+        } catch (SQLException e) {
+            Log.e("getSonhoPorId", "Erro ao buscar sonho: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_GET_SONHO_POR_ID.registrarDesde(inicioMedicao);
+        }
+        return sonhoObj;
+    }
 
-                    int id = -1;
-                    String titulo = "";
-                    String sonhoTexto = "";
-                    String dataTexto = "";
-                    String horaTexto = "";
-                    String significadoTexto = "";
+    /**
+     * Retorna os k sonhos mais parecidos com o vetor de consulta, do mais para o menos semelhante.
+     * A varredura lê apenas as colunas 'id' e 'vetor' e mantém só os k melhores num heap,
+     * então a memória retida não depende do tamanho do diário nem do texto dos sonhos.
+     * Cada linha ainda custa uma cópia do BLOB (getBlob devolve um byte[] novo de 1 KB, e o
+     * Cursor não permite ler sem copiar); são objetos de vida curta, descartados a cada linha.
+     */
+    public List<Sonho> buscarSonhosSemelhantes(float[] consulta, int k, int sonhoIdIgnorado) {
+        List<Sonho> semelhantes = new ArrayList<>();
+        if (k <= 0 || SonhoVetorizador.vazio(consulta)) return semelhantes;
 
-                    if (idIndex != -1) id = cursor.getInt(idIndex);
-                    if (tituloIndex != -1) titulo = cursor.getString(tituloIndex);
-                    if (sonhoIndex != -1) sonhoTexto = cursor.getString(sonhoIndex);
-                    if (dataIndex != -1) dataTexto = cursor.getString(dataIndex);
-                    if (horaIndex != -1) horaTexto = cursor.getString(horaIndex);
-                    if (significadoIndex != -1) significadoTexto = cursor.getString(significadoIndex);
+        // Heap de mínimo pela similaridade: o topo é sempre o pior dos k melhores
+        PriorityQueue<Candidato> melhores = new PriorityQueue<>(k + 1, (a, b) -> Float.compare(a.score, b.score));
 
-                    Sonho sonhoObj = new Sonho(titulo, sonhoTexto, dataTexto, horaTexto);
-                    sonhoObj.setId(id);
-                    sonhoObj.setSignificado(significadoTexto);
-                    sonhosList.add(sonhoObj);
-                } while (cursor.moveToNext());
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_SONHOS, new String[]{COLUMN_ID, COLUMN_VETOR},
+                    COLUMN_VETOR + " IS NOT NULL AND " + COLUMN_ID + " != ?",
+                    new String[]{String.valueOf(sonhoIdIgnorado)}, null, null, null);
+
+            while (cursor.moveToNext()) {
+                float score = SonhoVetorizador.similaridade(consulta, cursor.getBlob(1));
+                if (score <= 0f) continue;
+
+                if (melhores.size() < k) {
+                    melhores.add(new Candidato(cursor.getInt(0), score));
+                } else if (score > melhores.peek().score) {
+                    Candidato pior = melhores.poll();
+                    pior.id = cursor.getInt(0);
+                    pior.score = score;
+                    melhores.add(pior);
+                }
+            }
+            cursor.close();
+            cursor = null;
+
+            if (melhores.isEmpty()) return semelhantes;
+
+            List<Candidato> ordenados = new ArrayList<>(melhores);
+            Collections.sort(ordenados, (a, b) -> Float.compare(b.score, a.score));
+
+            // Só agora busca título e data, e apenas dos k escolhidos
+            String[] ids = new String[ordenados.size()];
+            for (int i = 0; i < ordenados.size(); i++) {
+                ids[i] = String.valueOf(ordenados.get(i).id);
+            }
+
+            cursor = db.query(TABLE_SONHOS, new String[]{COLUMN_ID, COLUMN_TITULO, COLUMN_DATA, COLUMN_HORA},
+                    COLUMN_ID + " IN (" + placeholders(ids.length) + ")", ids, null, null, null);
+
+            Sonho[] porPosicao = new Sonho[ordenados.size()];
+            while (cursor.moveToNext()) {
+                int id = cursor.getInt(0);
+                for (int i = 0; i < ordenados.size(); i++) {
+                    if (ordenados.get(i).id == id) {
+                        Sonho sonhoObj = new Sonho(cursor.getString(1), "", cursor.getString(2), cursor.getString(3));
+                        sonhoObj.setId(id);
+                        sonhoObj.setSimilaridade(ordenados.get(i).score);
+                        porPosicao[i] = sonhoObj;
+                        break;
+                    }
+                }
+            }
+            for (Sonho sonhoObj : porPosicao) {
+                if (sonhoObj != null) semelhantes.add(sonhoObj);
             }
         } catch (SQLException e) {
-            Log.e("searchSonhos", "Erro ao pesquisar sonhos: " + e.getMessage());
+            Log.e("buscarSonhosSemelhantes", "Erro ao buscar sonhos semelhantes: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_BUSCAR_SONHOS_SEMELHANTES.registrarDesde(inicioMedicao);
+        }
+        return semelhantes;
+    }
+
+    /**
+     * Quantidade de sonhos por dia no intervalo [inicio, fim], com as datas no formato yyyy-MM-dd.
+     * Lê apenas a tabela agregada, sem tocar em 'sonhos'.
+     */
+    public Map<String, Integer> getContagemPorDia(String inicio, String fim) {
+        Map<String, Integer> contagem = new HashMap<>();
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_SONHOS_POR_DIA, new String[]{COLUMN_DIA, COLUMN_TOTAL},
+                    COLUMN_DIA + " BETWEEN ? AND ?", new String[]{inicio, fim}, null, null, null);
+            while (cursor.moveToNext()) {
+                contagem.put(cursor.getString(0), cursor.getInt(1));
+            }
+        } catch (SQLException e) {
+            Log.e("getContagemPorDia", "Erro ao buscar contagem por dia: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_GET_CONTAGEM_POR_DIA.registrarDesde(inicioMedicao);
+        }
+        return contagem;
+    }
+
+    // Sonhos de um dia específico, com a data no mesmo formato da coluna ("dd/MM/yyyy")
+    public List<Sonho> getSonhosDoDia(String data) {
+        List<Sonho> sonhosList = new ArrayList<>();
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_SONHOS, COLUNAS_RESUMO, COLUMN_DATA + " = ?", new String[]{data},
+                    null, null, COLUMN_HORA);
+            while (cursor.moveToNext()) {
+                sonhosList.add(lerResumo(cursor));
+            }
+        } catch (SQLException e) {
+            Log.e("getSonhosDoDia", "Erro ao buscar sonhos do dia: " + e.getMessage());
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
+            T_GET_SONHOS_DO_DIA.registrarDesde(inicioMedicao);
         }
         return sonhosList;
     }
-}
\ No newline at end of file
+
+    public long getEstadoSync(String chave) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        long valor = 0;
+        try {
+            cursor = db.query(TABLE_SYNC_ESTADO, new String[]{COLUMN_VALOR},
+                    COLUMN_CHAVE + " = ?", new String[]{chave}, null, null, null);
+            if (cursor.moveToFirst()) {
+                valor = cursor.getLong(0);
+            }
+        } catch (SQLException e) {
+            Log.e("getEstadoSync", "Erro ao ler estado da sincronização: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return valor;
+    }
+
+    // Grava um checkpoint depois que o servidor confirmou o lote correspondente
+    public void setEstadoSync(String chave, long valor) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        try {
+            gravarEstadoSync(db, chave, valor);
+        } catch (SQLException e) {
+            Log.e("setEstadoSync", "Erro ao gravar estado da sincronização: " + e.getMessage());
+        }
+    }
+
+    private static void gravarEstadoSync(SQLiteDatabase db, String chave, long valor) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_CHAVE, chave);
+        values.put(COLUMN_VALOR, valor);
+        db.insertWithOnConflict(TABLE_SYNC_ESTADO, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Ao trocar de diário, tudo o que existe aqui precisa ir para o novo servidor: recoloca todos
+     * os sonhos no fim da fila de envio e zera os checkpoints. As exclusões antigas não são reenviadas.
+     */
+    public void prepararReenvioCompleto() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("UPDATE " + TABLE_SONHOS + " SET " + COLUMN_SEQ_LOCAL + " = " + SEQ_ATUAL + " + " + COLUMN_ID + ";");
+            db.execSQL(SYNC_SEQ_INICIAR);
+            db.delete(TABLE_SONHOS_EXCLUIDOS, null, null);
+            gravarEstadoSync(db, SYNC_PUSH_SONHOS, 0);
+            gravarEstadoSync(db, SYNC_PUSH_EXCLUSOES, 0);
+            gravarEstadoSync(db, SYNC_PULL_CURSOR, 0);
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e("prepararReenvioCompleto", "Erro ao reiniciar a sincronização: " + e.getMessage());
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Próximo lote da fila de envio: sonhos alterados aqui depois do checkpoint 'desdeSeq',
+     * em ordem de alteração. Uma linha alterada de novo durante o envio ganha um seq maior
+     * e simplesmente volta no próximo lote.
+     */
+    public List<AlteracaoSync> getAlteracoesPendentes(long desdeSeq, int limite) {
+        List<AlteracaoSync> alteracoes = new ArrayList<>();
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_SONHOS,
+                    new String[]{COLUMN_UUID, COLUMN_VERSAO, COLUMN_ATUALIZADO_EM, COLUMN_SEQ_LOCAL,
+                            COLUMN_TITULO, COLUMN_SONHO, COLUMN_DATA, COLUMN_HORA, COLUMN_SIGNIFICADO},
+                    COLUMN_SEQ_LOCAL + " > ?", new String[]{String.valueOf(desdeSeq)},
+                    null, null, COLUMN_SEQ_LOCAL, String.valueOf(limite));
+            while (cursor.moveToNext()) {
+                AlteracaoSync alteracao = new AlteracaoSync(cursor.getString(0), cursor.getInt(1), cursor.getLong(2), false);
+                alteracao.setSeqLocal(cursor.getLong(3));
+                alteracao.setConteudo(cursor.getString(4), cursor.getString(5), cursor.getString(6),
+                        cursor.getString(7), cursor.getString(8));
+                alteracoes.add(alteracao);
+            }
+        } catch (SQLException e) {
+            Log.e("getAlteracoesPendentes", "Erro ao buscar alterações pendentes: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            T_GET_ALTERACOES_PENDENTES.registrarDesde(inicioMedicao);
+        }
+        return alteracoes;
+    }
+
+    public List<AlteracaoSync> getExclusoesPendentes(long desdeSeq, int limite) {
+        List<AlteracaoSync> exclusoes = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_SONHOS_EXCLUIDOS, new String[]{COLUMN_UUID, COLUMN_EXCLUIDO_EM, COLUMN_SEQ_LOCAL},
+                    COLUMN_SEQ_LOCAL + " > ?", new String[]{String.valueOf(desdeSeq)},
+                    null, null, COLUMN_SEQ_LOCAL, String.valueOf(limite));
+            while (cursor.moveToNext()) {
+                AlteracaoSync exclusao = new AlteracaoSync(cursor.getString(0), 0, cursor.getLong(1), true);
+                exclusao.setSeqLocal(cursor.getLong(2));
+                exclusoes.add(exclusao);
+            }
+        } catch (SQLException e) {
+            Log.e("getExclusoesPendentes", "Erro ao buscar exclusões pendentes: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return exclusoes;
+    }
+
+    /**
+     * Aplica um lote recebido do servidor numa única transação, junto com o novo cursor do pull:
+     * se o app for encerrado no meio, o lote inteiro é pedido de novo na próxima sincronização.
+     * Conflitos são resolvidos por 'atualizado_em' (a última escrita vence); quando a versão local
+     * é mais nova ela é mantida e segue na fila de envio. Retorna quantas alterações foram aplicadas.
+     */
+    public int aplicarAlteracoesRemotas(List<AlteracaoSync> alteracoes, long cursorServidor) {
+        long inicioMedicao = Metricas.agora();
+        SQLiteDatabase db = this.getWritableDatabase();
+        int aplicadas = 0;
+        db.beginTransaction();
+        try {
+            for (AlteracaoSync remota : alteracoes) {
+                if (aplicarAlteracaoRemota(db, remota)) {
+                    aplicadas++;
+                } else {
+                    C_CONFLITOS_LOCAL_VENCEU.incrementar();
+                }
+            }
+            gravarEstadoSync(db, SYNC_PULL_CURSOR, cursorServidor);
+            db.setTransactionSuccessful();
+            Log.i("aplicarAlteracoesRemotas", aplicadas + " de " + alteracoes.size() + " alterações remotas aplicadas.");
+        } catch (SQLException e) {
+            Log.e("aplicarAlteracoesRemotas", "Erro ao aplicar alterações remotas: " + e.getMessage());
+            aplicadas = -1;
+        } finally {
+            db.endTransaction();
+            T_APLICAR_ALTERACOES_REMOTAS.registrarDesde(inicioMedicao);
+        }
+        return aplicadas;
+    }
+
+    private boolean aplicarAlteracaoRemota(SQLiteDatabase db, AlteracaoSync remota) {
+        String[] argUuid = {remota.getUuid()};
+        long idLocal = -1;
+        long atualizadoLocal = AlteracaoSync.AUSENTE;
+        Cursor cursor = db.query(TABLE_SONHOS, new String[]{COLUMN_ID, COLUMN_ATUALIZADO_EM},
+                COLUMN_UUID + " = ?", argUuid, null, null, null);
+        try {
+            if (cursor.moveToFirst()) {
+                idLocal = cursor.getLong(0);
+                atualizadoLocal = cursor.getLong(1);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        // Só importa se o sonho não existe aqui: foi excluído depois da última edição remota?
+        long excluidoLocalEm = AlteracaoSync.AUSENTE;
+        if (idLocal == -1 && !remota.isExcluido()) {
+            cursor = db.query(TABLE_SONHOS_EXCLUIDOS, new String[]{COLUMN_EXCLUIDO_EM},
+                    COLUMN_UUID + " = ?", argUuid, null, null, null);
+            try {
+                if (cursor.moveToFirst()) {
+                    excluidoLocalEm = cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        if (!remota.venceLocal(atualizadoLocal, excluidoLocalEm)) {
+            return false;
+        }
+
+        if (remota.isExcluido()) {
+            if (idLocal != -1) {
+                db.delete(TABLE_SONHOS, COLUMN_ID + " = ?", new String[]{String.valueOf(idLocal)});
+            }
+            // Substitui a exclusão que o trigger acabou de enfileirar: esta já está no servidor
+            ContentValues exclusao = new ContentValues();
+            exclusao.put(COLUMN_UUID, remota.getUuid());
+            exclusao.put(COLUMN_EXCLUIDO_EM, remota.getAtualizadoEm());
+            exclusao.put(COLUMN_SEQ_LOCAL, 0);
+            db.insertWithOnConflict(TABLE_SONHOS_EXCLUIDOS, null, exclusao, SQLiteDatabase.CONFLICT_REPLACE);
+            return true;
+        }
+
+        Sonho sonho = new Sonho(remota.getTitulo(), remota.getDescricao(), remota.getData(), remota.getHora());
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TITULO, sonho.getTitulo());
+        values.put(COLUMN_SONHO, sonho.getDescricao());
+        values.put(COLUMN_DATA, sonho.getData());
+        values.put(COLUMN_HORA, sonho.getHora());
+        values.put(COLUMN_SIGNIFICADO, remota.getSignificado());
+        values.put(COLUMN_VETOR, calcularVetor(sonho));
+        values.put(COLUMN_PREVIA, calcularPrevia(sonho.getDescricao()));
+        values.put(COLUMN_VERSAO, remota.getVersao());
+        values.put(COLUMN_ATUALIZADO_EM, remota.getAtualizadoEm());
+        values.put(COLUMN_SEQ_LOCAL, 0);
+
+        if (idLocal == -1) {
+            values.put(COLUMN_UUID, remota.getUuid());
+            db.insertOrThrow(TABLE_SONHOS, null, values);
+            db.delete(TABLE_SONHOS_EXCLUIDOS, COLUMN_UUID + " = ?", argUuid);
+        } else {
+            db.update(TABLE_SONHOS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(idLocal)});
+        }
+        return true;
+    }
+
+    /**
+     * Manutenção periódica, chamada pelo ManutencaoDoBanco com o aparelho ocioso e carregando.
+     * Na primeira vez passa o banco para auto_vacuum=INCREMENTAL, o que exige um VACUUM completo;
+     * depois só devolve as páginas livres com incremental_vacuum. Nada aqui roda dentro de
+     * transação, onde o VACUUM não é permitido. Erros de SQLite são repassados a quem chamou.
+     */
+    public RelatorioManutencao executarManutencao() {
+        long inicioMedicao = Metricas.agora();
+        RelatorioManutencao relatorio = new RelatorioManutencao(System.currentTimeMillis());
+        SQLiteDatabase db = this.getWritableDatabase();
+        try {
+            long bytesAntes = tamanhoEmBytes(db);
+            long livresAntes = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+
+            // Um arquivo corrompido não é reescrito: fica só o diagnóstico
+            relatorio.setIntegridade(verificarIntegridade(db));
+            if (relatorio.isIntegro()) {
+                if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null) != AUTO_VACUUM_INCREMENTAL) {
+                    db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+                    db.execSQL("VACUUM");
+                    relatorio.setVacuumCompleto(true);
+                } else {
+                    liberarPaginas(db);
+                }
+                // Sem estatísticas ainda, ANALYZE completo; depois, o optimize só refaz as desatualizadas
+                if (DatabaseUtils.queryNumEntries(db, "sqlite_master", "name = 'sqlite_stat1'") == 0) {
+                    db.execSQL("ANALYZE");
+                } else {
+                    db.execSQL("PRAGMA optimize");
+                }
+            }
+
+            relatorio.setAutoVacuumIncremental(
+                    DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null) == AUTO_VACUUM_INCREMENTAL);
+            relatorio.setTamanho(bytesAntes, tamanhoEmBytes(db));
+            relatorio.setPaginasLivres(livresAntes, DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null));
+        } finally {
+            relatorio.setDuracaoMs(TimeUnit.NANOSECONDS.toMillis(Metricas.agora() - inicioMedicao));
+            T_EXECUTAR_MANUTENCAO.registrarDesde(inicioMedicao);
+        }
+        return relatorio;
+    }
+
+    // incremental_vacuum devolve uma linha por página liberada, e só libera a página quando a
+    // linha é lida; por isso roda como consulta e o cursor é lido até o fim
+    private static void liberarPaginas(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum", null);
+        try {
+            while (cursor.moveToNext()) {
+                // cada passo devolve uma página livre ao sistema de arquivos
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long tamanhoEmBytes(SQLiteDatabase db) {
+        return DatabaseUtils.longForQuery(db, "PRAGMA page_count", null)
+                * DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+    }
+
+    // "ok", ou as primeiras mensagens de erro do integrity_check
+    private static String verificarIntegridade(SQLiteDatabase db) {
+        StringBuilder mensagens = new StringBuilder();
+        Cursor cursor = db.rawQuery("PRAGMA integrity_check(" + LIMITE_MENSAGENS_INTEGRIDADE + ")", null);
+        try {
+            while (cursor.moveToNext()) {
+                if (mensagens.length() > 0) mensagens.append('\n');
+                mensagens.append(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return mensagens.toString();
+    }
+
+    /**
+     * Plano (EXPLAIN QUERY PLAN) de cada consulta frequente das telas, montada como nos métodos
+     * acima. A manutenção compara com os planos anteriores para notar quando uma delas deixa de
+     * usar o índice.
+     */
+    public Map<String, String> getPlanosDeConsulta() {
+        Map<String, String> planos = new LinkedHashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        try {
+            planos.put("getSonhosResumo", plano(db, TABLE_SONHOS, COLUNAS_RESUMO, null, null, null));
+            planos.put("getSonhoPorId", plano(db, TABLE_SONHOS, COLUNAS_SONHO, COLUMN_ID + " = ?", null, null));
+            planos.put("getSonhosDoDia", plano(db, TABLE_SONHOS, COLUNAS_RESUMO, COLUMN_DATA + " = ?", COLUMN_HORA, null));
+            planos.put("getContagemPorDia", plano(db, TABLE_SONHOS_POR_DIA, new String[]{COLUMN_DIA, COLUMN_TOTAL},
+                    COLUMN_DIA + " BETWEEN ? AND ?", null, null));
+            planos.put("getInterpretacoesPorEstilo", plano(db, TABLE_INTERPRETACOES, COLUNAS_INTERPRETACAO,
+                    COLUMN_SONHO_ID + " = ?", COLUMN_CRIADO_EM + " DESC", null));
+            planos.put("getRascunho", plano(db, TABLE_RASCUNHOS, new String[]{COLUMN_TITULO, COLUMN_SONHO, COLUMN_DATA, COLUMN_HORA},
+                    COLUMN_SONHO_ID + " = ?", null, null));
+            planos.put("getAlteracoesPendentes", plano(db, TABLE_SONHOS,
+                    new String[]{COLUMN_UUID, COLUMN_VERSAO, COLUMN_ATUALIZADO_EM, COLUMN_SEQ_LOCAL,
+                            COLUMN_TITULO, COLUMN_SONHO, COLUMN_DATA, COLUMN_HORA, COLUMN_SIGNIFICADO},
+                    COLUMN_SEQ_LOCAL + " > ?", COLUMN_SEQ_LOCAL, "1"));
+            planos.put("aplicarAlteracoesRemotas", plano(db, TABLE_SONHOS, new String[]{COLUMN_ID, COLUMN_ATUALIZADO_EM},
+                    COLUMN_UUID + " = ?", null, null));
+        } catch (SQLException e) {
+            Log.e("getPlanosDeConsulta", "Erro ao obter planos de consulta: " + e.getMessage());
+        }
+        return planos;
+    }
+
+    // Um passo do plano por linha; o valor dos parâmetros não muda o plano
+    private static String plano(SQLiteDatabase db, String tabela, String[] colunas, String selecao, String ordem, String limite) {
+        String sql = SQLiteQueryBuilder.buildQueryString(false, tabela, colunas, selecao, null, null, ordem, limite);
+        String[] args = new String[selecao == null ? 0 : selecao.length() - selecao.replace("?", "").length()];
+        Arrays.fill(args, "0");
+
+        StringBuilder plano = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int colunaDetalhe = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                if (plano.length() > 0) plano.append('\n');
+                plano.append(cursor.getString(colunaDetalhe));
+            }
+        } finally {
+            cursor.close();
+        }
+        return plano.toString();
+    }
+
+    private static class Candidato {
+        int id;
+        float score;
+
+        Candidato(int id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
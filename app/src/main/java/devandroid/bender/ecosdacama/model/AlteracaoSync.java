@@ -0,0 +1,120 @@
+package devandroid.bender.ecosdacama.model;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Uma alteração de sonho trocada com o servidor de sincronização: a linha inteira ou a sua exclusão
+public class AlteracaoSync {
+    public static final long AUSENTE = Long.MIN_VALUE; // o sonho não existe (ou não foi excluído) neste aparelho
+
+    private String uuid;
+    private int versao;
+    private long atualizadoEm; // milissegundos desde 1970; decide os conflitos (última escrita vence)
+    private boolean excluido;
+    private long seqLocal; // posição na fila de envio deste aparelho; não vai para o servidor
+    private String titulo;
+    private String descricao;
+    private String data;
+    private String hora;
+    private String significado;
+
+    public AlteracaoSync(String uuid, int versao, long atualizadoEm, boolean excluido) {
+        this.uuid = uuid;
+        this.versao = versao;
+        this.atualizadoEm = atualizadoEm;
+        this.excluido = excluido;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public int getVersao() {
+        return versao;
+    }
+
+    public long getAtualizadoEm() {
+        return atualizadoEm;
+    }
+
+    public boolean isExcluido() {
+        return excluido;
+    }
+
+    public long getSeqLocal() {
+        return seqLocal;
+    }
+
+    public void setSeqLocal(long seqLocal) {
+        this.seqLocal = seqLocal;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    public String getHora() {
+        return hora;
+    }
+
+    public String getSignificado() {
+        return significado;
+    }
+
+    public void setConteudo(String titulo, String descricao, String data, String hora, String significado) {
+        this.titulo = titulo;
+        this.descricao = descricao;
+        this.data = data;
+        this.hora = hora;
+        this.significado = significado;
+    }
+
+    /**
+     * Decide se esta alteração, vinda do servidor, vence o que o aparelho tem: a última escrita vence.
+     * atualizadoLocal é o atualizado_em do sonho local e excluidoLocalEm o momento da sua exclusão
+     * local (AUSENTE quando não há). No empate, uma exclusão remota vence e uma edição remota perde.
+     */
+    public boolean venceLocal(long atualizadoLocal, long excluidoLocalEm) {
+        if (excluido) {
+            return atualizadoLocal == AUSENTE || atualizadoLocal <= atualizadoEm;
+        }
+        if (atualizadoLocal != AUSENTE) {
+            return atualizadoLocal < atualizadoEm;
+        }
+        return excluidoLocalEm == AUSENTE || excluidoLocalEm < atualizadoEm;
+    }
+
+    public JSONObject paraJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("uuid", uuid);
+        json.put("versao", versao);
+        json.put("atualizadoEm", atualizadoEm);
+        json.put("excluido", excluido);
+        if (!excluido) {
+            json.put("titulo", titulo);
+            json.put("sonho", descricao);
+            json.put("data", data);
+            json.put("hora", hora);
+            json.put("significado", significado);
+        }
+        return json;
+    }
+
+    public static AlteracaoSync deJson(JSONObject json) throws JSONException {
+        AlteracaoSync alteracao = new AlteracaoSync(json.getString("uuid"), json.optInt("versao", 1),
+                json.getLong("atualizadoEm"), json.optBoolean("excluido", false));
+        if (!alteracao.excluido) {
+            alteracao.setConteudo(json.optString("titulo", ""), json.optString("sonho", ""),
+                    json.optString("data", ""), json.optString("hora", ""), json.optString("significado", ""));
+        }
+        return alteracao;
+    }
+}
@@ -0,0 +1,103 @@
+package devandroid.bender.ecosdacama.model;
+
+// Uma interpretação de um sonho num estilo, guardada no histórico junto com os números da sorte
+public class Interpretacao {
+    public static final int ESTILO_DESCONHECIDO = -1; // interpretações salvas antes do histórico
+
+    private int sonhoId;
+    private int estilo;
+    private String modelo;
+    private long criadoEm;
+    private String texto;
+    // Números separados por vírgula, ou null quando a API não os enviou separados
+    private String lotofacil;
+    private String megaSena;
+    private String diaDeSorte;
+    private Integer hashDescricao; // hash da descrição interpretada; null se desconhecida
+
+    public Interpretacao(int estilo, String modelo, long criadoEm, String texto) {
+        this.estilo = estilo;
+        this.modelo = modelo != null ? modelo : "";
+        this.criadoEm = criadoEm;
+        this.texto = texto;
+    }
+
+    public static int hashDescricao(String descricao) {
+        return descricao == null ? 0 : descricao.trim().hashCode();
+    }
+
+    public boolean correspondeA(String descricao) {
+        return hashDescricao != null && hashDescricao == hashDescricao(descricao);
+    }
+
+    // Texto completo, no mesmo formato que a API usa no campo 'significado'
+    public String getTextoCompleto() {
+        if (lotofacil == null && megaSena == null && diaDeSorte == null) return texto;
+        return texto + "\n\n🔢 Números da sorte baseados no sonho:\n"
+                + "- Lotofácil: " + formatarNumeros(lotofacil) + "\n"
+                + "- Mega-Sena: " + formatarNumeros(megaSena) + "\n"
+                + "- Dia de Sorte: " + formatarNumeros(diaDeSorte) + "\n"
+                + "Obs.: apenas diversão; sem garantia de resultados.";
+    }
+
+    private static String formatarNumeros(String numeros) {
+        if (numeros == null || numeros.isEmpty()) return "-";
+        StringBuilder sb = new StringBuilder();
+        for (String numero : numeros.split(",")) {
+            if (sb.length() > 0) sb.append(", ");
+            if (numero.length() < 2) sb.append('0');
+            sb.append(numero);
+        }
+        return sb.toString();
+    }
+
+    public int getSonhoId() {
+        return sonhoId;
+    }
+
+    public void setSonhoId(int sonhoId) {
+        this.sonhoId = sonhoId;
+    }
+
+    public int getEstilo() {
+        return estilo;
+    }
+
+    public String getModelo() {
+        return modelo;
+    }
+
+    public long getCriadoEm() {
+        return criadoEm;
+    }
+
+    public String getTexto() {
+        return texto;
+    }
+
+    public String getLotofacil() {
+        return lotofacil;
+    }
+
+    public String getMegaSena() {
+        return megaSena;
+    }
+
+    public String getDiaDeSorte() {
+        return diaDeSorte;
+    }
+
+    public void setNumerosDaSorte(String lotofacil, String megaSena, String diaDeSorte) {
+        this.lotofacil = lotofacil;
+        this.megaSena = megaSena;
+        this.diaDeSorte = diaDeSorte;
+    }
+
+    public Integer getHashDescricao() {
+        return hashDescricao;
+    }
+
+    public void setHashDescricao(Integer hashDescricao) {
+        this.hashDescricao = hashDescricao;
+    }
+}
@@ -0,0 +1,139 @@
+package devandroid.bender.ecosdacama.model;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de uma passada de manutenção do banco, guardado para a tela de métricas
+public class RelatorioManutencao {
+    private long executadoEm; // milissegundos desde 1970
+    private long duracaoMs;
+    private long bytesAntes;
+    private long bytesDepois;
+    private long paginasLivresAntes;
+    private long paginasLivresDepois;
+    private boolean autoVacuumIncremental;
+    private boolean vacuumCompleto; // a migração para auto_vacuum=INCREMENTAL reescreveu o arquivo
+    private String integridade = "";  // "ok" ou as primeiras mensagens do integrity_check
+    private final List<String> planosAlterados = new ArrayList<>();
+    private final List<String> planosRegredidos = new ArrayList<>();
+
+    public RelatorioManutencao(long executadoEm) {
+        this.executadoEm = executadoEm;
+    }
+
+    public boolean isIntegro() {
+        return "ok".equals(integridade);
+    }
+
+    public long getExecutadoEm() {
+        return executadoEm;
+    }
+
+    public long getDuracaoMs() {
+        return duracaoMs;
+    }
+
+    public void setDuracaoMs(long duracaoMs) {
+        this.duracaoMs = duracaoMs;
+    }
+
+    public long getBytesAntes() {
+        return bytesAntes;
+    }
+
+    public long getBytesDepois() {
+        return bytesDepois;
+    }
+
+    public void setTamanho(long bytesAntes, long bytesDepois) {
+        this.bytesAntes = bytesAntes;
+        this.bytesDepois = bytesDepois;
+    }
+
+    public long getPaginasLivresAntes() {
+        return paginasLivresAntes;
+    }
+
+    public long getPaginasLivresDepois() {
+        return paginasLivresDepois;
+    }
+
+    public void setPaginasLivres(long paginasLivresAntes, long paginasLivresDepois) {
+        this.paginasLivresAntes = paginasLivresAntes;
+        this.paginasLivresDepois = paginasLivresDepois;
+    }
+
+    public boolean isAutoVacuumIncremental() {
+        return autoVacuumIncremental;
+    }
+
+    public void setAutoVacuumIncremental(boolean autoVacuumIncremental) {
+        this.autoVacuumIncremental = autoVacuumIncremental;
+    }
+
+    public boolean isVacuumCompleto() {
+        return vacuumCompleto;
+    }
+
+    public void setVacuumCompleto(boolean vacuumCompleto) {
+        this.vacuumCompleto = vacuumCompleto;
+    }
+
+    public String getIntegridade() {
+        return integridade;
+    }
+
+    public void setIntegridade(String integridade) {
+        this.integridade = integridade;
+    }
+
+    public List<String> getPlanosAlterados() {
+        return planosAlterados;
+    }
+
+    public List<String> getPlanosRegredidos() {
+        return planosRegredidos;
+    }
+
+    public JSONObject paraJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("executadoEm", executadoEm);
+        json.put("duracaoMs", duracaoMs);
+        json.put("bytesAntes", bytesAntes);
+        json.put("bytesDepois", bytesDepois);
+        json.put("paginasLivresAntes", paginasLivresAntes);
+        json.put("paginasLivresDepois", paginasLivresDepois);
+        json.put("autoVacuumIncremental", autoVacuumIncremental);
+        json.put("vacuumCompleto", vacuumCompleto);
+        json.put("integridade", integridade);
+        json.put("planosAlterados", new JSONArray(planosAlterados));
+        json.put("planosRegredidos", new JSONArray(planosRegredidos));
+        return json;
+    }
+
+    public static RelatorioManutencao deJson(JSONObject json) throws JSONException {
+        RelatorioManutencao relatorio = new RelatorioManutencao(json.getLong("executadoEm"));
+        relatorio.duracaoMs = json.optLong("duracaoMs");
+        relatorio.bytesAntes = json.optLong("bytesAntes");
+        relatorio.bytesDepois = json.optLong("bytesDepois");
+        relatorio.paginasLivresAntes = json.optLong("paginasLivresAntes");
+        relatorio.paginasLivresDepois = json.optLong("paginasLivresDepois");
+        relatorio.autoVacuumIncremental = json.optBoolean("autoVacuumIncremental");
+        relatorio.vacuumCompleto = json.optBoolean("vacuumCompleto");
+        relatorio.integridade = json.optString("integridade", "");
+        lerLista(json.optJSONArray("planosAlterados"), relatorio.planosAlterados);
+        lerLista(json.optJSONArray("planosRegredidos"), relatorio.planosRegredidos);
+        return relatorio;
+    }
+
+    private static void lerLista(JSONArray array, List<String> destino) {
+        if (array == null) return;
+        for (int i = 0; i < array.length(); i++) {
+            destino.add(array.optString(i));
+        }
+    }
+}
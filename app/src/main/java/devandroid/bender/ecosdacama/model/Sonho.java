@@ -7,6 +7,9 @@ public class Sonho {
     private String data;
     private String hora;
     private String significado; // Adicionado para armazenar o significado
+    private float similaridade; // Preenchido apenas na busca por sonhos semelhantes
+    private String previa; // Início da descrição, carregado nas listas no lugar do texto completo
+    private int estilosInterpretados; // Bits (1 << estilo) dos estilos com interpretação salva; só nas listas
 
     // Construtor
     public Sonho(String titulo, String descricao, String data, String hora) {
@@ -66,6 +69,31 @@ public class Sonho {
         this.significado = significado;
     }
 
+    // Nas listas a descrição não é carregada; fora delas a prévia cai para a descrição
+    public String getPrevia() {
+        return previa != null ? previa : descricao;
+    }
+
+    public void setPrevia(String previa) {
+        this.previa = previa;
+    }
+
+    public int getEstilosInterpretados() {
+        return estilosInterpretados;
+    }
+
+    public void setEstilosInterpretados(int estilosInterpretados) {
+        this.estilosInterpretados = estilosInterpretados;
+    }
+
+    public float getSimilaridade() {
+        return similaridade;
+    }
+
+    public void setSimilaridade(float similaridade) {
+        this.similaridade = similaridade;
+    }
+
     @Override
     public String toString() {
         return "Sonho{" +
@@ -0,0 +1,285 @@
+package devandroid.bender.ecosdacama.util;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.speech.RecognitionListener;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Ditado contínuo com o SpeechRecognizer embutido, sem sair da tela.
+ *
+ * Resultados parciais são entregues enquanto a pessoa fala, e o reconhecimento é reiniciado
+ * sozinho a cada pausa até que parar() seja chamado. O reconhecimento offline é preferido
+ * quando o aparelho oferece; se o idioma não estiver disponível offline, cai para o online.
+ * Antes do Android 12 não há erro específico para isso: o serviço responde com ERROR_SERVER,
+ * ERROR_CLIENT ou ERROR_NO_MATCH, então esses erros também levam ao online enquanto o modo
+ * offline ainda não tiver reconhecido nada.
+ *
+ * Depois de parar() o serviço ainda pode entregar o resultado final do último trecho; a sessão
+ * só é contabilizada quando ele chega, ou após ESPERA_RESULTADO_FINAL_MS. Quem precisa do texto
+ * completo (para gravar, por exemplo) usa parar(Runnable), chamado nesse mesmo momento.
+ *
+ * Deve ser usado na thread principal.
+ */
+public class DitadoContinuo implements RecognitionListener {
+
+    private static final String TAG = "DitadoContinuo";
+    private static final long ESPERA_REINICIO_OCUPADO_MS = 300;
+    private static final long ESPERA_RESULTADO_FINAL_MS = 2000;
+
+    private static final Metricas.Histograma T_PRIMEIRO_CARACTERE = Metricas.histograma("ditado.primeiro_caractere");
+    private static final Metricas.Histograma H_PALAVRAS = Metricas.histograma("ditado.palavras_por_sessao", "palavras");
+    private static final Metricas.Contador C_REINICIOS = Metricas.contador("ditado.reinicios_automaticos");
+
+    public interface Ouvinte {
+        // Texto provisório do trecho atual; substitui o parcial anterior
+        void onParcial(String texto);
+
+        // Texto definitivo do trecho atual; o próximo parcial começa um novo trecho
+        void onFinal(String texto);
+
+        void onEstadoAlterado(boolean ativo);
+
+        void onErro(String mensagem);
+    }
+
+    private final Context context;
+    private final Ouvinte ouvinte;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private SpeechRecognizer recognizer;
+    private boolean ativo = false;
+    private boolean preferirOffline = true;
+    private boolean offlineReconheceu = false; // o modo offline já entregou texto neste aparelho
+    private boolean sessaoPendente = false;    // parada, aguardando o resultado final para ser registrada
+    private Runnable aoEncerrar;               // chamado quando a sessão pendente terminar
+
+    private final Runnable encerrarSessao = this::encerrarSessao;
+
+    // Métricas da sessão atual
+    private long inicioSessao;
+    private long tempoPrimeiroCaractereMs = -1;
+    private int palavrasCapturadas = 0;
+
+    public DitadoContinuo(Context context, Ouvinte ouvinte) {
+        this.context = context;
+        this.ouvinte = ouvinte;
+    }
+
+    public static boolean disponivel(Context context) {
+        return SpeechRecognizer.isRecognitionAvailable(context);
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    public void iniciar() {
+        if (ativo) return;
+        encerrarSessao();
+        if (recognizer == null) {
+            recognizer = SpeechRecognizer.createSpeechRecognizer(context);
+            recognizer.setRecognitionListener(this);
+        }
+        ativo = true;
+        inicioSessao = SystemClock.elapsedRealtime();
+        tempoPrimeiroCaractereMs = -1;
+        palavrasCapturadas = 0;
+        ouvinte.onEstadoAlterado(true);
+        escutar();
+    }
+
+    public void parar() {
+        if (!ativo) return;
+        ativo = false;
+        handler.removeCallbacksAndMessages(null);
+        recognizer.stopListening();
+        sessaoPendente = true;
+        handler.postDelayed(encerrarSessao, ESPERA_RESULTADO_FINAL_MS);
+        ouvinte.onEstadoAlterado(false);
+    }
+
+    // Para e chama aoEncerrar depois que o último trecho tiver sido entregue ao ouvinte
+    public void parar(Runnable aoEncerrar) {
+        parar();
+        if (sessaoPendente) {
+            this.aoEncerrar = aoEncerrar;
+        } else {
+            aoEncerrar.run();
+        }
+    }
+
+    public void destruir() {
+        parar();
+        encerrarSessao(); // sem o recognizer, nenhum resultado final vai chegar
+        if (recognizer != null) {
+            recognizer.destroy();
+            recognizer = null;
+        }
+    }
+
+    public long getTempoPrimeiroCaractereMs() {
+        return tempoPrimeiroCaractereMs;
+    }
+
+    public int getPalavrasCapturadas() {
+        return palavrasCapturadas;
+    }
+
+    private void escutar() {
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault().toLanguageTag());
+        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
+        intent.putExtra(RecognizerIntent.EXTRA_PREFER_OFFLINE, preferirOffline);
+        recognizer.startListening(intent);
+    }
+
+    // Reinicia fora do callback atual, como recomendado para o SpeechRecognizer
+    private void reiniciar(long atrasoMs) {
+        if (!ativo) return;
+        C_REINICIOS.incrementar();
+        handler.postDelayed(() -> {
+            if (ativo) escutar();
+        }, atrasoMs);
+    }
+
+    // Registra a sessão parada; chamado no resultado final, num erro ou quando a espera acaba
+    private void encerrarSessao() {
+        if (!sessaoPendente) return;
+        sessaoPendente = false;
+        handler.removeCallbacks(encerrarSessao);
+        registrarSessao();
+        Runnable depois = aoEncerrar;
+        aoEncerrar = null;
+        if (depois != null) depois.run();
+    }
+
+    private void registrarSessao() {
+        H_PALAVRAS.registrar(palavrasCapturadas);
+        Log.i(TAG, "Sessão de ditado: primeiro caractere em " + tempoPrimeiroCaractereMs + " ms, "
+                + palavrasCapturadas + " palavras em " + (SystemClock.elapsedRealtime() - inicioSessao) + " ms");
+    }
+
+    private static String primeiroResultado(Bundle resultados) {
+        if (resultados == null) return "";
+        ArrayList<String> textos = resultados.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+        return (textos == null || textos.isEmpty() || textos.get(0) == null) ? "" : textos.get(0);
+    }
+
+    private void marcarPrimeiroCaractere(String texto) {
+        if (preferirOffline && !texto.trim().isEmpty()) offlineReconheceu = true;
+        if (tempoPrimeiroCaractereMs < 0 && !texto.trim().isEmpty()) {
+            tempoPrimeiroCaractereMs = SystemClock.elapsedRealtime() - inicioSessao;
+            T_PRIMEIRO_CARACTERE.registrar(tempoPrimeiroCaractereMs * 1000);
+        }
+    }
+
+    @Override
+    public void onPartialResults(Bundle partialResults) {
+        if (!ativo) return;
+        String texto = primeiroResultado(partialResults);
+        marcarPrimeiroCaractere(texto);
+        ouvinte.onParcial(texto);
+    }
+
+    @Override
+    public void onResults(Bundle results) {
+        String texto = primeiroResultado(results);
+        marcarPrimeiroCaractere(texto);
+        if (!texto.trim().isEmpty()) {
+            palavrasCapturadas += texto.trim().split("\\s+").length;
+        }
+        ouvinte.onFinal(texto);
+        if (!ativo) {
+            encerrarSessao(); // último trecho de uma sessão já parada
+            return;
+        }
+        // A pessoa fez uma pausa: continua escutando o próximo trecho
+        reiniciar(0);
+    }
+
+    @Override
+    public void onError(int error) {
+        if (!ativo) {
+            encerrarSessao(); // o trecho em andamento na parada não tinha resultado final
+            return;
+        }
+        if (semOfflineAntesDoAndroid12(error)) {
+            Log.w(TAG, "Reconhecimento offline falhou (" + error + "), usando reconhecimento online.");
+            preferirOffline = false;
+            reiniciar(0);
+            return;
+        }
+        switch (error) {
+            case SpeechRecognizer.ERROR_NO_MATCH:
+            case SpeechRecognizer.ERROR_SPEECH_TIMEOUT:
+                // Silêncio ou ruído: não é motivo para encerrar o ditado
+                reiniciar(0);
+                break;
+            case SpeechRecognizer.ERROR_RECOGNIZER_BUSY:
+                reiniciar(ESPERA_REINICIO_OCUPADO_MS);
+                break;
+            case SpeechRecognizer.ERROR_LANGUAGE_NOT_SUPPORTED:
+            case SpeechRecognizer.ERROR_LANGUAGE_UNAVAILABLE:
+                if (preferirOffline) {
+                    Log.w(TAG, "Idioma indisponível offline, usando reconhecimento online.");
+                    preferirOffline = false;
+                    reiniciar(0);
+                    break;
+                }
+                falhar("Idioma não suportado pelo reconhecimento de voz.");
+                break;
+            case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS:
+                falhar("Permissão de microfone negada.");
+                break;
+            case SpeechRecognizer.ERROR_NETWORK:
+            case SpeechRecognizer.ERROR_NETWORK_TIMEOUT:
+                falhar("Sem conexão para o reconhecimento de voz.");
+                break;
+            default:
+                falhar("Erro no reconhecimento de voz (" + error + ").");
+                break;
+        }
+    }
+
+    // Antes do Android 12, a falta do idioma offline aparece como um destes erros genéricos
+    private boolean semOfflineAntesDoAndroid12(int error) {
+        if (!preferirOffline || offlineReconheceu || Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) return false;
+        return error == SpeechRecognizer.ERROR_SERVER
+                || error == SpeechRecognizer.ERROR_CLIENT
+                || error == SpeechRecognizer.ERROR_NO_MATCH;
+    }
+
+    private void falhar(String mensagem) {
+        parar();
+        ouvinte.onErro(mensagem);
+    }
+
+    @Override
+    public void onReadyForSpeech(Bundle params) { }
+
+    @Override
+    public void onBeginningOfSpeech() { }
+
+    @Override
+    public void onRmsChanged(float rmsdB) { }
+
+    @Override
+    public void onBufferReceived(byte[] buffer) { }
+
+    @Override
+    public void onEndOfSpeech() { }
+
+    @Override
+    public void onEvent(int eventType, Bundle params) { }
+}
@@ -0,0 +1,255 @@
+package devandroid.bender.ecosdacama.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import devandroid.bender.ecosdacama.model.Interpretacao;
+import okhttp3.Call;
+import okhttp3.Response;
+
+import org.json.JSONException;
+
+/**
+ * Interpretação especulativa do editor (opcional, desligada por padrão).
+ *
+ * Quando a digitação fica parada por OCIOSO_MS e o texto mudou o bastante desde o último
+ * pedido, a interpretação do estilo atual é pedida em segundo plano, com prioridade baixa.
+ * Um novo pedido cancela o anterior. O resultado fica guardado só aqui: ele é entregue quando
+ * o botão de significado é tocado para o mesmo texto e estilo, e descartado caso contrário.
+ * Cada dia do calendário local tem um limite de pedidos especulativos, para não gastar a cota
+ * da API à toa.
+ *
+ * Todos os métodos públicos devem ser chamados na thread principal.
+ */
+public class InterpretacaoAntecipada {
+
+    private static final String PREFS = "interpretacao_antecipada";
+    private static final String PREF_ATIVA = "ativa";
+    private static final String PREF_DIA = "dia";
+    private static final String PREF_USADAS = "usadas";
+
+    private static final long OCIOSO_MS = 4000;
+    private static final int TAMANHO_MINIMO = 40;   // textos curtos demais ainda não valem a chamada
+    private static final int MUDANCA_MINIMA = 20;   // caracteres alterados desde o último pedido
+    public static final int LIMITE_DIARIO = 20;
+
+    private static final Metricas.Contador C_DISPARADAS = Metricas.contador("antecipacao.disparadas");
+    private static final Metricas.Contador C_CANCELADAS = Metricas.contador("antecipacao.canceladas");
+    private static final Metricas.Contador C_ACERTOS = Metricas.contador("antecipacao.acertos");
+    private static final Metricas.Contador C_PERDIDAS = Metricas.contador("antecipacao.perdidas");
+    private static final Metricas.Contador C_FALHAS = Metricas.contador("antecipacao.falhas");
+    private static final Metricas.Contador C_SEM_ORCAMENTO = Metricas.contador("antecipacao.sem_orcamento");
+
+    public interface Fonte {
+        // Texto e estilo atuais do editor, ou null quando não há o que antecipar
+        Pedido capturar();
+    }
+
+    public interface Callback {
+        // Recebe a interpretação antecipada, ou null se o pedido em andamento falhou
+        void onPronta(Interpretacao interpretacao);
+    }
+
+    public static final class Pedido {
+        final String texto;
+        final int estilo;
+
+        public Pedido(String texto, int estilo) {
+            this.texto = texto;
+            this.estilo = estilo;
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SharedPreferences prefs;
+    private final Fonte fonte;
+
+    private Pedido ultimoPedido;           // o último enviado, em andamento ou concluído
+    private Call emAndamento;
+    private Interpretacao pronta;          // resposta do último pedido, ainda não usada
+    private final List<Callback> aguardando = new ArrayList<>();
+    private boolean encerrado = false;
+
+    private final Runnable disparar = this::dispararSeNecessario;
+
+    public InterpretacaoAntecipada(Context context, Fonte fonte) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.fonte = fonte;
+    }
+
+    public static boolean isAtiva(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).getBoolean(PREF_ATIVA, false);
+    }
+
+    public static void setAtiva(Context context, boolean ativa) {
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).edit().putBoolean(PREF_ATIVA, ativa).apply();
+    }
+
+    // Chamado a cada alteração do texto ou do estilo; reinicia a espera por ociosidade
+    public void alterado() {
+        if (encerrado || !prefs.getBoolean(PREF_ATIVA, false)) return;
+        handler.removeCallbacks(disparar);
+        handler.postDelayed(disparar, OCIOSO_MS);
+    }
+
+    /**
+     * Entrega a interpretação antecipada para o texto e estilo pedidos: na hora, se já chegou,
+     * ou quando chegar, se o pedido ainda está em andamento. Retorna false quando não há
+     * antecipação aproveitável; nesse caso a que estiver em andamento é cancelada.
+     */
+    public boolean usar(String texto, int estilo, Callback callback) {
+        handler.removeCallbacks(disparar);
+        boolean mesmoPedido = ultimoPedido != null && ultimoPedido.estilo == estilo
+                && Interpretacao.hashDescricao(ultimoPedido.texto) == Interpretacao.hashDescricao(texto);
+        if (!mesmoPedido) {
+            if (prefs.getBoolean(PREF_ATIVA, false)) C_PERDIDAS.incrementar();
+            cancelar();
+            return false;
+        }
+
+        if (pronta != null) {
+            C_ACERTOS.incrementar();
+            Interpretacao resultado = pronta;
+            pronta = null;
+            ultimoPedido = null;
+            callback.onPronta(resultado);
+            return true;
+        }
+        if (emAndamento != null) {
+            C_ACERTOS.incrementar();
+            aguardando.add(callback);
+            return true;
+        }
+        C_PERDIDAS.incrementar();
+        return false;
+    }
+
+    // A tela foi fechada: nada mais é disparado e o pedido em andamento é abandonado, sem avisar
+    // quem esperava por ele (o aviso levaria a tela já fechada a pedir a interpretação de novo)
+    public void encerrar() {
+        encerrado = true;
+        handler.removeCallbacks(disparar);
+        aguardando.clear();
+        cancelar();
+    }
+
+    private void cancelar() {
+        if (emAndamento != null) {
+            emAndamento.cancel();
+            emAndamento = null;
+            C_CANCELADAS.incrementar();
+        }
+        pronta = null;
+        ultimoPedido = null;
+        entregar(null);
+    }
+
+    private void dispararSeNecessario() {
+        if (encerrado) return;
+        Pedido pedido = fonte.capturar();
+        if (pedido == null || pedido.texto.trim().length() < TAMANHO_MINIMO) return;
+        if (ultimoPedido != null && ultimoPedido.estilo == pedido.estilo
+                && caracteresAlterados(ultimoPedido.texto, pedido.texto) < MUDANCA_MINIMA) {
+            return;
+        }
+        if (!consumirOrcamento()) {
+            C_SEM_ORCAMENTO.incrementar();
+            return;
+        }
+
+        Call chamada;
+        try {
+            chamada = InterpretadorDeSonhos.novaChamada(pedido.texto, pedido.estilo);
+        } catch (JSONException e) {
+            Log.e("dispararSeNecessario", "Erro ao criar requisição JSON", e);
+            return;
+        }
+        cancelar();
+        ultimoPedido = pedido;
+        emAndamento = chamada;
+        C_DISPARADAS.incrementar();
+
+        new Thread(() -> {
+            // Não disputa CPU com a digitação nem com o desenho da tela
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            Interpretacao resultado = null;
+            try (Response response = chamada.execute()) {
+                if (response.isSuccessful() && response.body() != null) {
+                    resultado = InterpretadorDeSonhos.lerResposta(response.body().string(), pedido.estilo, pedido.texto);
+                }
+            } catch (IOException | JSONException e) {
+                if (!chamada.isCanceled()) Log.e("dispararSeNecessario", "Erro na interpretação antecipada: " + e.getMessage());
+            }
+
+            Interpretacao finalResultado = resultado;
+            handler.post(() -> {
+                if (emAndamento != chamada) return; // cancelada ou substituída nesse meio tempo
+                emAndamento = null;
+                if (finalResultado == null) {
+                    C_FALHAS.incrementar();
+                    ultimoPedido = null;
+                    entregar(null);
+                } else if (!aguardando.isEmpty()) {
+                    ultimoPedido = null;
+                    entregar(finalResultado);
+                } else {
+                    pronta = finalResultado;
+                }
+            });
+        }).start();
+    }
+
+    private void entregar(Interpretacao interpretacao) {
+        List<Callback> callbacks = new ArrayList<>(aguardando);
+        aguardando.clear();
+        for (Callback callback : callbacks) {
+            callback.onPronta(interpretacao);
+        }
+    }
+
+    // Conta, no máximo, um pedido por chamada; o limite recomeça à meia-noite local
+    private boolean consumirOrcamento() {
+        long hoje = diaLocal(System.currentTimeMillis(), TimeZone.getDefault());
+        int usadas = usadasHoje(prefs.getLong(PREF_DIA, -1), prefs.getInt(PREF_USADAS, 0), hoje);
+        if (usadas >= LIMITE_DIARIO) return false;
+        prefs.edit().putLong(PREF_DIA, hoje).putInt(PREF_USADAS, usadas + 1).apply();
+        return true;
+    }
+
+    // Data no fuso do aparelho como aaaammdd; nunca coincide com os dias desde 1970 gravados antes
+    static long diaLocal(long instanteMs, TimeZone fuso) {
+        Calendar calendario = Calendar.getInstance(fuso);
+        calendario.setTimeInMillis(instanteMs);
+        return calendario.get(Calendar.YEAR) * 10000L
+                + (calendario.get(Calendar.MONTH) + 1) * 100L
+                + calendario.get(Calendar.DAY_OF_MONTH);
+    }
+
+    // Pedidos já feitos hoje, a partir do que foi gravado no último pedido
+    static int usadasHoje(long diaGravado, int usadasGravadas, long hoje) {
+        return diaGravado == hoje ? usadasGravadas : 0;
+    }
+
+    // Tamanho do trecho que difere entre os dois textos, descontando o início e o fim em comum
+    static int caracteresAlterados(String antes, String depois) {
+        int inicio = 0;
+        int limite = Math.min(antes.length(), depois.length());
+        while (inicio < limite && antes.charAt(inicio) == depois.charAt(inicio)) inicio++;
+        int fim = 0;
+        while (fim < limite - inicio
+                && antes.charAt(antes.length() - 1 - fim) == depois.charAt(depois.length() - 1 - fim)) {
+            fim++;
+        }
+        return Math.max(antes.length(), depois.length()) - inicio - fim;
+    }
+}
@@ -0,0 +1,117 @@
+package devandroid.bender.ecosdacama.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import devandroid.bender.ecosdacama.BuildConfig;
+import devandroid.bender.ecosdacama.model.Interpretacao;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Cliente da API de interpretação. Um único OkHttpClient é compartilhado pelo app
+ * para que as conexões com a API sejam reaproveitadas entre chamadas e telas.
+ */
+public class InterpretadorDeSonhos {
+
+    private static final String API_URL = BuildConfig.DREAM_API_URL;
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private static final OkHttpClient client = new OkHttpClient.Builder()
+            .connectTimeout(15, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .writeTimeout(15, TimeUnit.SECONDS)
+            .eventListenerFactory(MetricasEventListener.FACTORY)
+            .build();
+
+    private InterpretadorDeSonhos() { }
+
+    // A posição corresponde ao array 'prompt_style_options'
+    public static String getPrompt(int estilo) {
+        switch (estilo) {
+            case 0:
+                return "Você é um sábio intérprete dos sonhos. Traga significados simbólicos inspirados em tradições espirituais e arquetípicas, com tom poético, acolhedor e enigmático.";
+            case 1:
+                return "Você é um guia inspirado na psicologia dos sonhos. Relacione símbolos e emoções com arquétipos, inconsciente coletivo e aspectos internos, de forma clara e reflexiva.";
+            case 2:
+                return "Você é um amigo acolhedor. Ajude a pessoa a refletir sobre os símbolos dos sonhos e suas emoções, trazendo encorajamento e conselhos práticos simples para o dia.";
+            case 3:
+                return "Você é um contador de histórias. Conecte os símbolos do sonho a mitos, lendas e narrativas antigas, trazendo interpretações criativas e inspiradoras.";
+            case 4:
+                return "Você é um oráculo dos sonhos. Suas interpretações são simbólicas, intuitivas e misteriosas, com uma linguagem ritualística, oferecendo insights como mensagens ocultas.";
+            case 5:
+                return "Você é um guia motivacional dos sonhos. Extraia símbolos como aprendizados e transforme-os em mensagens positivas e práticas para fortalecer o dia da pessoa.";
+            case 6:
+                return "Você é um analista objetivo de sonhos. Forneça interpretações curtas e diretas, com foco nos símbolos principais, emoções centrais e reflexões rápidas.";
+            default:
+                return "Analise o seguinte sonho e me diga seu possível significado com base em interpretações comuns da simbologia dos sonhos. Seja objetivo e considere aspectos psicológicos e simbólicos tradicionais.";
+        }
+    }
+
+    public static Call novaChamada(String textoDoSonho, int estilo) throws JSONException {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("sonho", textoDoSonho);
+        jsonObject.put("prompt", getPrompt(estilo));
+
+        RequestBody body = RequestBody.create(jsonObject.toString(), JSON);
+        Request request = new Request.Builder().url(API_URL).post(body).build();
+        return client.newCall(request);
+    }
+
+    /**
+     * Chamada bloqueante, para uso fora da thread principal.
+     * Lança IOException em erro de rede ou quando a API não responde com sucesso.
+     */
+    public static Interpretacao interpretar(String textoDoSonho, int estilo) throws IOException {
+        try (Response response = novaChamada(textoDoSonho, estilo).execute()) {
+            String resposta = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                throw new IOException("Erro: " + response.code() + " - " + resposta);
+            }
+            return lerResposta(resposta, estilo, textoDoSonho);
+        } catch (JSONException e) {
+            throw new IOException("Erro ao processar a resposta.", e);
+        }
+    }
+
+    /**
+     * Converte a resposta da API numa interpretação do histórico. Versões antigas da API só
+     * enviam 'significado', com os números da sorte já no texto; nesse caso ele é usado inteiro.
+     */
+    public static Interpretacao lerResposta(String resposta, int estilo, String textoDoSonho) throws JSONException {
+        JSONObject json = new JSONObject(resposta);
+        String texto = json.optString("interpretacao", "");
+        JSONObject numeros = json.optJSONObject("numerosDaSorte");
+        if (texto.isEmpty()) {
+            texto = json.getString("significado");
+            numeros = null;
+        }
+
+        Interpretacao interpretacao = new Interpretacao(estilo, json.optString("model", ""), System.currentTimeMillis(), texto);
+        interpretacao.setHashDescricao(Interpretacao.hashDescricao(textoDoSonho));
+        if (numeros != null) {
+            interpretacao.setNumerosDaSorte(juntarNumeros(numeros.optJSONArray("lotofacil")),
+                    juntarNumeros(numeros.optJSONArray("megaSena")),
+                    juntarNumeros(numeros.optJSONArray("diaDeSorte")));
+        }
+        return interpretacao;
+    }
+
+    private static String juntarNumeros(JSONArray numeros) {
+        if (numeros == null) return null;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numeros.length(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(numeros.optInt(i));
+        }
+        return sb.toString();
+    }
+}
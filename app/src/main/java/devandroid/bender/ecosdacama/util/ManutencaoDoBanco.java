@@ -0,0 +1,162 @@
+package devandroid.bender.ecosdacama.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.SQLException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import devandroid.bender.ecosdacama.model.RelatorioManutencao;
+
+/**
+ * Manutenção diária do sonhos_db, só com o aparelho ocioso e carregando: compacta o arquivo,
+ * atualiza as estatísticas do planejador e confere a integridade (ver EcosDaCamaDB.executarManutencao).
+ *
+ * Também guarda o plano de cada consulta frequente e aponta como regressão quando um plano
+ * passa a varrer a tabela inteira ou a ordenar numa B-tree temporária onde antes não fazia isso.
+ * O último relatório fica nas SharedPreferences para a tela de métricas.
+ */
+public class ManutencaoDoBanco extends Worker {
+
+    private static final String TAG = "ManutencaoDoBanco";
+    private static final String NOME_TRABALHO = "manutencao_banco";
+    private static final String PREFS = "manutencao_banco";
+    private static final String PREF_RELATORIO = "ultimo_relatorio";
+    private static final String PREF_PLANO = "plano."; // + nome da consulta
+
+    private static final Metricas.Contador C_PLANOS_REGREDIDOS = Metricas.contador("db.planos_regredidos");
+
+    public ManutencaoDoBanco(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // Pode ser chamado a cada abertura do app: um agendamento já existente é mantido
+    public static void agendar(Context context) {
+        Constraints restricoes = new Constraints.Builder()
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .build();
+        PeriodicWorkRequest pedido = new PeriodicWorkRequest.Builder(ManutencaoDoBanco.class, 1, TimeUnit.DAYS)
+                .setConstraints(restricoes)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(NOME_TRABALHO, ExistingPeriodicWorkPolicy.KEEP, pedido);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        EcosDaCamaDB db = EcosDaCamaDB.getInstance(getApplicationContext());
+        RelatorioManutencao relatorio;
+        try {
+            relatorio = db.executarManutencao();
+        } catch (SQLException e) {
+            // Banco ocupado (ex.: o app foi aberto no meio) ou erro de disco: tenta de novo depois
+            Log.e(TAG, "Erro na manutenção do banco: " + e.getMessage());
+            return Result.retry();
+        }
+        compararPlanos(db.getPlanosDeConsulta(), relatorio);
+
+        try {
+            prefs(getApplicationContext()).edit()
+                    .putString(PREF_RELATORIO, relatorio.paraJson().toString())
+                    .apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Erro ao guardar o relatório: " + e.getMessage());
+        }
+        Log.i(TAG, "Manutenção concluída em " + relatorio.getDuracaoMs() + " ms: "
+                + relatorio.getBytesAntes() + " -> " + relatorio.getBytesDepois() + " bytes, integridade "
+                + relatorio.getIntegridade());
+        return Result.success();
+    }
+
+    // Compara com os planos guardados; o guardado só é trocado quando o novo não é pior
+    private void compararPlanos(Map<String, String> planos, RelatorioManutencao relatorio) {
+        SharedPreferences prefs = prefs(getApplicationContext());
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, String> entrada : planos.entrySet()) {
+            String chave = PREF_PLANO + entrada.getKey();
+            String anterior = prefs.getString(chave, null);
+            String atual = entrada.getValue();
+            if (atual.equals(anterior)) continue;
+
+            if (anterior != null && custo(atual) > custo(anterior)) {
+                C_PLANOS_REGREDIDOS.incrementar();
+                relatorio.getPlanosRegredidos().add(entrada.getKey() + ": " + anterior.replace('\n', ';')
+                        + " -> " + atual.replace('\n', ';'));
+                continue;
+            }
+            if (anterior != null) {
+                relatorio.getPlanosAlterados().add(entrada.getKey());
+            }
+            editor.putString(chave, atual);
+        }
+        editor.apply();
+    }
+
+    // Passos caros do plano: varredura sem índice ("SCAN sonhos" / "SCAN TABLE sonhos") e ordenação temporária
+    static int custo(String plano) {
+        int custo = 0;
+        for (String passo : plano.split("\n")) {
+            if (passo.startsWith("SCAN") && !passo.contains("INDEX")) custo++;
+            if (passo.startsWith("USE TEMP B-TREE")) custo++;
+        }
+        return custo;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    // Último relatório guardado, ou null se a manutenção ainda não rodou
+    public static RelatorioManutencao getUltimoRelatorio(Context context) {
+        String json = prefs(context).getString(PREF_RELATORIO, null);
+        if (json == null) return null;
+        try {
+            return RelatorioManutencao.deJson(new JSONObject(json));
+        } catch (JSONException e) {
+            Log.e(TAG, "Relatório inválido: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Resumo legível para a tela de depuração
+    public static String resumo(Context context) {
+        RelatorioManutencao r = getUltimoRelatorio(context);
+        if (r == null) return "Manutenção do banco: ainda não executada.";
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Manutenção do banco (")
+                .append(DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT).format(new Date(r.getExecutadoEm())))
+                .append(", ").append(r.getDuracaoMs()).append(" ms)\n");
+        sb.append(String.format(Locale.US, "  tamanho: %.1f KB -> %.1f KB%n", r.getBytesAntes() / 1024.0, r.getBytesDepois() / 1024.0));
+        sb.append("  páginas livres: ").append(r.getPaginasLivresAntes()).append(" -> ").append(r.getPaginasLivresDepois()).append('\n');
+        sb.append("  auto_vacuum incremental: ").append(r.isAutoVacuumIncremental() ? "sim" : "não")
+                .append(r.isVacuumCompleto() ? " (VACUUM completo nesta execução)" : "").append('\n');
+        sb.append("  integridade: ").append(r.getIntegridade()).append('\n');
+        if (!r.getPlanosAlterados().isEmpty()) {
+            sb.append("  planos alterados: ").append(String.join(", ", r.getPlanosAlterados())).append('\n');
+        }
+        for (String regressao : r.getPlanosRegredidos()) {
+            sb.append("  REGRESSÃO ").append(regressao).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package devandroid.bender.ecosdacama.util;
+
+import android.os.SystemClock;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas de desempenho em memória (timers, histogramas e contadores).
+ *
+ * Os histogramas e contadores são criados uma vez, em campos estáticos de quem os usa, e
+ * registrar um valor não aloca nada: só incrementa posições de arrays já existentes.
+ * Os tempos são guardados em microssegundos, em baldes de potência de 2.
+ */
+public final class Metricas {
+
+    public static final String MICROSSEGUNDOS = "us";
+
+    private static final Map<String, Histograma> histogramas = new LinkedHashMap<>();
+    private static final Map<String, Contador> contadores = new LinkedHashMap<>();
+
+    private Metricas() { }
+
+    public static synchronized Histograma histograma(String nome) {
+        return histograma(nome, MICROSSEGUNDOS);
+    }
+
+    public static synchronized Histograma histograma(String nome, String unidade) {
+        Histograma h = histogramas.get(nome);
+        if (h == null) {
+            h = new Histograma(nome, unidade);
+            histogramas.put(nome, h);
+        }
+        return h;
+    }
+
+    public static synchronized Contador contador(String nome) {
+        Contador c = contadores.get(nome);
+        if (c == null) {
+            c = new Contador(nome);
+            contadores.put(nome, c);
+        }
+        return c;
+    }
+
+    // Marca de início para os timers
+    public static long agora() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    public static synchronized void zerar() {
+        for (Histograma h : histogramas.values()) h.zerar();
+        for (Contador c : contadores.values()) c.valor.set(0);
+    }
+
+    public static synchronized List<Histograma> getHistogramas() {
+        return new ArrayList<>(histogramas.values());
+    }
+
+    public static synchronized List<Contador> getContadores() {
+        return new ArrayList<>(contadores.values());
+    }
+
+    // Resumo legível para a tela de depuração
+    public static String resumo() {
+        StringBuilder sb = new StringBuilder();
+        for (Histograma h : getHistogramas()) {
+            if (h.getContagem() == 0) continue;
+            sb.append(String.format(Locale.US, "%s (%s)%n  n=%d  p50=%d  p90=%d  p99=%d  máx=%d%n",
+                    h.nome, h.unidade, h.getContagem(), h.percentil(0.5), h.percentil(0.9), h.percentil(0.99), h.getMaximo()));
+        }
+        for (Contador c : getContadores()) {
+            sb.append(c.nome).append(" = ").append(c.get()).append('\n');
+        }
+        return sb.length() == 0 ? "Nenhuma métrica registrada ainda." : sb.toString();
+    }
+
+    public static JSONObject paraJson() throws JSONException {
+        JSONObject raiz = new JSONObject();
+        raiz.put("geradoEm", System.currentTimeMillis());
+
+        JSONArray listaHistogramas = new JSONArray();
+        for (Histograma h : getHistogramas()) {
+            listaHistogramas.put(h.paraJson());
+        }
+        raiz.put("histogramas", listaHistogramas);
+
+        JSONObject listaContadores = new JSONObject();
+        for (Contador c : getContadores()) {
+            listaContadores.put(c.nome, c.get());
+        }
+        raiz.put("contadores", listaContadores);
+        return raiz;
+    }
+
+    public static final class Histograma {
+        private static final int BALDES = 40;
+
+        final String nome;
+        final String unidade;
+        // baldes[i] conta valores em [2^(i-1), 2^i); baldes[0] conta zeros
+        private final long[] baldes = new long[BALDES];
+        private long contagem;
+        private long soma;
+        private long maximo;
+
+        private Histograma(String nome, String unidade) {
+            this.nome = nome;
+            this.unidade = unidade;
+        }
+
+        public synchronized void registrar(long valor) {
+            if (valor < 0) valor = 0;
+            int balde = Math.min(BALDES - 1, 64 - Long.numberOfLeadingZeros(valor));
+            baldes[balde]++;
+            contagem++;
+            soma += valor;
+            if (valor > maximo) maximo = valor;
+        }
+
+        // Registra o tempo decorrido desde inicioNanos (obtido com Metricas.agora())
+        public void registrarDesde(long inicioNanos) {
+            registrar((SystemClock.elapsedRealtimeNanos() - inicioNanos) / 1000);
+        }
+
+        public void registrarNanos(long nanos) {
+            registrar(nanos / 1000);
+        }
+
+        public synchronized long getContagem() {
+            return contagem;
+        }
+
+        public synchronized long getMaximo() {
+            return maximo;
+        }
+
+        public synchronized long getMedia() {
+            return contagem == 0 ? 0 : soma / contagem;
+        }
+
+        // Estimativa pelo limite superior do balde onde o percentil cai
+        public synchronized long percentil(double p) {
+            if (contagem == 0) return 0;
+            long alvo = (long) Math.ceil(p * contagem);
+            long acumulado = 0;
+            for (int i = 0; i < BALDES; i++) {
+                acumulado += baldes[i];
+                if (acumulado >= alvo) {
+                    return i == 0 ? 0 : Math.min(maximo, (1L << i) - 1);
+                }
+            }
+            return maximo;
+        }
+
+        synchronized void zerar() {
+            for (int i = 0; i < BALDES; i++) baldes[i] = 0;
+            contagem = 0;
+            soma = 0;
+            maximo = 0;
+        }
+
+        synchronized JSONObject paraJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("nome", nome);
+            json.put("unidade", unidade);
+            json.put("contagem", contagem);
+            json.put("media", getMedia());
+            json.put("p50", percentil(0.5));
+            json.put("p90", percentil(0.9));
+            json.put("p99", percentil(0.99));
+            json.put("maximo", maximo);
+            JSONArray listaBaldes = new JSONArray();
+            for (long b : baldes) listaBaldes.put(b);
+            json.put("baldesPotenciaDe2", listaBaldes);
+            return json;
+        }
+    }
+
+    public static final class Contador {
+        final String nome;
+        private final AtomicLong valor = new AtomicLong();
+
+        private Contador(String nome) {
+            this.nome = nome;
+        }
+
+        public void incrementar() {
+            valor.incrementAndGet();
+        }
+
+        public void somar(long delta) {
+            valor.addAndGet(delta);
+        }
+
+        public long get() {
+            return valor.get();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package devandroid.bender.ecosdacama.util;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+/**
+ * Divide o tempo de cada chamada HTTP em DNS, conexão TCP, TLS e espera pelo primeiro byte.
+ * A conexão TCP termina onde o handshake TLS começa, para as duas fatias não se sobreporem.
+ * Uma instância por chamada (os eventos de uma chamada chegam em sequência).
+ *
+ * Cada cliente registra com o próprio prefixo, para o tráfego de um não distorcer os números
+ * do outro: FACTORY ("http.*") é o da interpretação; a sincronização usa fabrica("sync.http").
+ */
+public class MetricasEventListener extends EventListener {
+
+    // Métricas de um cliente, criadas uma vez por prefixo e compartilhadas pelas suas chamadas
+    private static final class Series {
+        final Metricas.Histograma dns, conexao, tls, ttfb, total;
+        final Metricas.Contador conexoesNovas, conexoesReusadas, falhas;
+
+        Series(String prefixo) {
+            dns = Metricas.histograma(prefixo + ".dns");
+            conexao = Metricas.histograma(prefixo + ".conexao");
+            tls = Metricas.histograma(prefixo + ".tls");
+            ttfb = Metricas.histograma(prefixo + ".ttfb");
+            total = Metricas.histograma(prefixo + ".total");
+            conexoesNovas = Metricas.contador(prefixo + ".conexoes_novas");
+            conexoesReusadas = Metricas.contador(prefixo + ".conexoes_reusadas");
+            falhas = Metricas.contador(prefixo + ".falhas");
+        }
+    }
+
+    public static final EventListener.Factory FACTORY = fabrica("http");
+
+    public static EventListener.Factory fabrica(String prefixo) {
+        Series series = new Series(prefixo);
+        return call -> new MetricasEventListener(series);
+    }
+
+    private final Series series;
+    private long inicioChamada, inicioDns, inicioConexao, inicioTls, fimEnvio;
+    private boolean conectou = false;
+
+    private MetricasEventListener(Series series) {
+        this.series = series;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        inicioChamada = Metricas.agora();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        inicioDns = Metricas.agora();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        series.dns.registrarDesde(inicioDns);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        inicioConexao = Metricas.agora();
+        conectou = true;
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        inicioTls = Metricas.agora();
+        series.conexao.registrarDesde(inicioConexao);
+        inicioConexao = 0;
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        series.tls.registrarDesde(inicioTls);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        // Sem TLS (http://) a conexão só termina aqui
+        if (inicioConexao != 0) {
+            series.conexao.registrarDesde(inicioConexao);
+            inicioConexao = 0;
+        }
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        if (conectou) {
+            series.conexoesNovas.incrementar();
+        } else {
+            series.conexoesReusadas.incrementar();
+        }
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        fimEnvio = Metricas.agora();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        fimEnvio = Metricas.agora();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        if (fimEnvio != 0) {
+            series.ttfb.registrarDesde(fimEnvio);
+        }
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        series.total.registrarDesde(inicioChamada);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        series.falhas.incrementar();
+        series.total.registrarDesde(inicioChamada);
+    }
+}
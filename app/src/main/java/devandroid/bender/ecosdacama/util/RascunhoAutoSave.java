@@ -0,0 +1,163 @@
+package devandroid.bender.ecosdacama.util;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import devandroid.bender.ecosdacama.model.Sonho;
+
+/**
+ * Autosave write-behind do editor.
+ *
+ * Cada alteração só agenda uma gravação: várias teclas seguidas viram uma única escrita
+ * (debounce), e durante um ditado contínuo a gravação sai no máximo a cada ESPERA_MAXIMA_MS.
+ * O conteúdo é lido da tela apenas no momento da escrita, e nunca há mais de uma escrita
+ * em andamento; o que mudar nesse meio tempo é gravado logo depois que ela terminar.
+ *
+ * Todos os métodos públicos devem ser chamados na thread principal.
+ */
+public class RascunhoAutoSave {
+
+    private static final long DEBOUNCE_MS = 1500;
+    private static final long ESPERA_MAXIMA_MS = 10000;
+
+    public interface Fonte {
+        // Retrato atual dos campos do editor
+        Sonho capturar();
+    }
+
+    public interface Definitivo {
+        // Grava o sonho de vez; roda fora da thread principal e retorna false se falhou
+        boolean gravar();
+    }
+
+    public interface Conclusao {
+        void onConcluido(boolean gravou);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final EcosDaCamaDB db; // o mesmo helper da tela; o SQLiteDatabase serializa as gravações
+    private final int sonhoId;
+    private final Fonte fonte;
+
+    private boolean iniciado = false;
+    private boolean encerrado = false;  // executor liberado: nada mais é gravado nem carregado
+    private boolean promovendo = false; // gravação definitiva em andamento
+    private boolean haAlteracoes = false;
+    private boolean emAndamento = false;
+    private long primeiraAlteracaoPendente = 0;
+
+    private final Runnable gravar = this::gravarPendente;
+
+    public RascunhoAutoSave(Context context, int sonhoId, Fonte fonte) {
+        this.db = EcosDaCamaDB.getInstance(context.getApplicationContext());
+        this.sonhoId = sonhoId;
+        this.fonte = fonte;
+    }
+
+    // Começa a observar alterações; antes disso, o preenchimento inicial dos campos é ignorado
+    public void iniciar() {
+        iniciado = true;
+    }
+
+    public void alterado() {
+        if (!iniciado || encerrado) return;
+
+        long agora = System.currentTimeMillis();
+        if (!haAlteracoes) {
+            primeiraAlteracaoPendente = agora;
+        }
+        haAlteracoes = true;
+
+        long limite = primeiraAlteracaoPendente + ESPERA_MAXIMA_MS - agora;
+        handler.removeCallbacks(gravar);
+        handler.postDelayed(gravar, Math.max(0, Math.min(DEBOUNCE_MS, limite)));
+    }
+
+    // Grava imediatamente o que estiver pendente (ex.: quando a tela vai para segundo plano)
+    public void descarregar() {
+        handler.removeCallbacks(gravar);
+        gravarPendente();
+    }
+
+    /**
+     * Pausa o autosave e executa a gravação definitiva na mesma fila das escritas do rascunho,
+     * garantindo que nenhuma escrita atrasada recrie o rascunho depois de promovido. O resultado
+     * chega na thread principal: se gravou, o autosave é encerrado; se falhou, o rascunho continua
+     * valendo e o autosave volta a funcionar.
+     */
+    public void promover(Definitivo definitivo, Conclusao conclusao) {
+        if (encerrado || promovendo) return;
+        promovendo = true;
+        handler.removeCallbacks(gravar);
+        executor.execute(() -> {
+            boolean gravou;
+            try {
+                gravou = definitivo.gravar();
+            } catch (RuntimeException e) {
+                Log.e("promover", "Erro ao gravar o sonho: " + e.getMessage(), e);
+                gravou = false;
+            }
+            boolean resultado = gravou;
+            handler.post(() -> {
+                promovendo = false;
+                if (resultado) {
+                    encerrar();
+                } else if (haAlteracoes && !encerrado) {
+                    handler.postDelayed(gravar, DEBOUNCE_MS);
+                }
+                conclusao.onConcluido(resultado);
+            });
+        });
+    }
+
+    /**
+     * A tela foi destruída: as escritas já enfileiradas (inclusive uma gravação definitiva)
+     * terminam e a thread do executor é liberada.
+     */
+    public void encerrar() {
+        encerrado = true;
+        handler.removeCallbacks(gravar);
+        executor.shutdown();
+    }
+
+    private void gravarPendente() {
+        if (encerrado || promovendo || !haAlteracoes) return;
+        if (emAndamento) return; // será regravado quando a escrita atual terminar
+
+        final Sonho retrato = fonte.capturar();
+        haAlteracoes = false;
+        emAndamento = true;
+
+        executor.execute(() -> {
+            db.salvarRascunho(sonhoId, retrato);
+            handler.post(() -> {
+                emAndamento = false;
+                if (haAlteracoes) {
+                    // Chegaram alterações durante a escrita: respeita o debounce para a próxima
+                    handler.removeCallbacks(gravar);
+                    handler.postDelayed(gravar, DEBOUNCE_MS);
+                }
+            });
+        });
+    }
+
+    /** Busca em segundo plano o rascunho salvo, entregando o resultado (ou null) na thread principal. */
+    public void carregar(Callback callback) {
+        if (encerrado) return; // a tela já foi fechada
+        executor.execute(() -> {
+            Sonho rascunho = db.getRascunho(sonhoId);
+            handler.post(() -> callback.onCarregado(rascunho));
+        });
+    }
+
+    public interface Callback {
+        void onCarregado(Sonho rascunho);
+    }
+}
@@ -0,0 +1,305 @@
+package devandroid.bender.ecosdacama.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKeys;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import devandroid.bender.ecosdacama.BuildConfig;
+import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import devandroid.bender.ecosdacama.model.AlteracaoSync;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Sincronização incremental do diário com o servidor (ver ecos-da-cama-sync).
+ *
+ * Envia só as linhas que entraram na fila de envio depois do último checkpoint e recebe só o que
+ * mudou no servidor depois do último cursor, em lotes de TAMANHO_LOTE compactados com gzip.
+ * Cada lote confirmado grava o seu checkpoint, então uma sincronização interrompida continua
+ * de onde parou. Conflitos são resolvidos pelo banco: a última escrita vence.
+ * Toda chamada leva a senha do diário; o primeiro aparelho a usar um código define a senha.
+ * A senha fica num arquivo cifrado com chave do Android Keystore, nunca nas preferências comuns.
+ *
+ * sincronizar() é bloqueante e deve ser chamado fora da thread principal.
+ */
+public class SincronizadorDeSonhos {
+
+    private static final String TAG = "SincronizadorDeSonhos";
+    public static final int TAMANHO_LOTE = 200;
+
+    private static final String PREFS = "sincronizacao";
+    private static final String PREF_CODIGO_DIARIO = "codigo_diario";
+    private static final String PREFS_SEGURAS = "sincronizacao_segura";
+    private static final String PREF_SENHA_DIARIO = "senha_diario";
+    public static final int SENHA_MINIMA = 8;
+    public static final int SENHA_MAXIMA = 128;
+    private static final String PREF_DISPOSITIVO = "dispositivo";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private static final Metricas.Histograma T_PUSH_LOTE = Metricas.histograma("sync.push_lote");
+    private static final Metricas.Histograma T_PULL_LOTE = Metricas.histograma("sync.pull_lote");
+    private static final Metricas.Contador C_BYTES_ENVIADOS = Metricas.contador("sync.bytes_enviados_gzip");
+    private static final Metricas.Contador C_ENVIADAS = Metricas.contador("sync.alteracoes_enviadas");
+    private static final Metricas.Contador C_RECEBIDAS = Metricas.contador("sync.alteracoes_recebidas");
+
+    // O OkHttp já pede respostas em gzip e as descompacta sozinho. As métricas de rede ficam em
+    // sync.http.*, separadas das da interpretação
+    private static final OkHttpClient client = new OkHttpClient.Builder()
+            .connectTimeout(15, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .writeTimeout(30, TimeUnit.SECONDS)
+            .eventListenerFactory(MetricasEventListener.fabrica("sync.http"))
+            .build();
+
+    private final EcosDaCamaDB db;
+    private final HttpUrl baseAlteracoes;
+    private final String dispositivo;
+    private final String autorizacao;
+
+    public static class Resultado {
+        public int enviadas;
+        public int recebidas;
+    }
+
+    // O servidor recusou a senha do diário (401) ou bloqueou o aparelho por excesso de tentativas (429)
+    public static class AcessoNegadoException extends IOException {
+        public AcessoNegadoException(String message) {
+            super(message);
+        }
+    }
+
+    public SincronizadorDeSonhos(Context context) {
+        Context app = context.getApplicationContext();
+        this.db = EcosDaCamaDB.getInstance(app);
+        this.dispositivo = getDispositivo(app);
+        this.autorizacao = "Bearer " + getSenhaDiario(app);
+        this.baseAlteracoes = HttpUrl.get(BuildConfig.SYNC_API_URL).newBuilder()
+                .addPathSegments("v1/diarios")
+                .addPathSegment(getCodigoDiario(app))
+                .addPathSegment("alteracoes")
+                .build();
+    }
+
+    // O release sem servidor configurado (syncApiUrlRelease) sai com a sincronização desligada
+    public static boolean configurado() {
+        return !BuildConfig.SYNC_API_URL.isEmpty();
+    }
+
+    public static String getCodigoDiario(Context context) {
+        return prefs(context).getString(PREF_CODIGO_DIARIO, "");
+    }
+
+    // Vazia se ainda não foi definida ou se o Keystore não pôde ser usado
+    public static String getSenhaDiario(Context context) {
+        SharedPreferences seguras = prefsSeguras(context);
+        return seguras == null ? "" : seguras.getString(PREF_SENHA_DIARIO, "");
+    }
+
+    /**
+     * Define o diário usado nos próximos sincronismos. Trocar de diário recoloca todos os sonhos
+     * deste aparelho na fila e zera os checkpoints; chamar fora da thread principal.
+     */
+    public static void setDiario(Context context, String codigo, String senha) {
+        if (!codigo.equals(getCodigoDiario(context))) {
+            EcosDaCamaDB.getInstance(context.getApplicationContext()).prepararReenvioCompleto();
+        }
+        SharedPreferences seguras = prefsSeguras(context);
+        if (seguras != null) {
+            seguras.edit().putString(PREF_SENHA_DIARIO, senha).apply();
+        }
+        prefs(context).edit()
+                .putString(PREF_CODIGO_DIARIO, codigo)
+                .apply();
+    }
+
+    // Identifica este aparelho para o servidor não devolver as alterações que ele mesmo enviou
+    private static String getDispositivo(Context context) {
+        SharedPreferences prefs = prefs(context);
+        String id = prefs.getString(PREF_DISPOSITIVO, null);
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+            prefs.edit().putString(PREF_DISPOSITIVO, id).apply();
+        }
+        return id;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    private static SharedPreferences preferenciasSeguras;
+
+    // Abrir exige o Keystore, então a instância é criada uma vez só
+    private static synchronized SharedPreferences prefsSeguras(Context context) {
+        if (preferenciasSeguras != null) return preferenciasSeguras;
+        try {
+            preferenciasSeguras = EncryptedSharedPreferences.create(PREFS_SEGURAS,
+                    MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC),
+                    context.getApplicationContext(),
+                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+        } catch (GeneralSecurityException | IOException e) {
+            Log.e(TAG, "Erro ao abrir as preferências cifradas: " + e.getMessage());
+            return null;
+        }
+        // Versões anteriores guardavam a senha em texto puro: move para o arquivo cifrado
+        SharedPreferences antigas = prefs(context);
+        String senhaAntiga = antigas.getString(PREF_SENHA_DIARIO, null);
+        if (senhaAntiga != null) {
+            preferenciasSeguras.edit().putString(PREF_SENHA_DIARIO, senhaAntiga).commit();
+            antigas.edit().remove(PREF_SENHA_DIARIO).apply();
+        }
+        return preferenciasSeguras;
+    }
+
+    public Resultado sincronizar() throws IOException {
+        Resultado resultado = new Resultado();
+        // Envia primeiro: o servidor decide os conflitos já com as alterações deste aparelho
+        resultado.enviadas += enviarFila(false);
+        resultado.enviadas += enviarFila(true);
+        resultado.recebidas = receber();
+        Log.i(TAG, "Sincronização concluída: " + resultado.enviadas + " enviadas, " + resultado.recebidas + " recebidas.");
+        return resultado;
+    }
+
+    private int enviarFila(boolean exclusoes) throws IOException {
+        String chaveCheckpoint = exclusoes ? EcosDaCamaDB.SYNC_PUSH_EXCLUSOES : EcosDaCamaDB.SYNC_PUSH_SONHOS;
+        long checkpoint = db.getEstadoSync(chaveCheckpoint);
+        int enviadas = 0;
+
+        while (true) {
+            List<AlteracaoSync> lote = exclusoes
+                    ? db.getExclusoesPendentes(checkpoint, TAMANHO_LOTE)
+                    : db.getAlteracoesPendentes(checkpoint, TAMANHO_LOTE);
+            if (lote.isEmpty()) break;
+
+            long inicioMedicao = Metricas.agora();
+            enviarLote(lote);
+            T_PUSH_LOTE.registrarDesde(inicioMedicao);
+
+            checkpoint = lote.get(lote.size() - 1).getSeqLocal();
+            db.setEstadoSync(chaveCheckpoint, checkpoint);
+            enviadas += lote.size();
+            C_ENVIADAS.somar(lote.size());
+            if (lote.size() < TAMANHO_LOTE) break;
+        }
+        return enviadas;
+    }
+
+    private void enviarLote(List<AlteracaoSync> lote) throws IOException {
+        byte[] corpo;
+        try {
+            JSONArray alteracoes = new JSONArray();
+            for (AlteracaoSync alteracao : lote) {
+                alteracoes.put(alteracao.paraJson());
+            }
+            corpo = gzip(new JSONObject().put("alteracoes", alteracoes).toString().getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IOException("Erro ao montar o lote de envio.", e);
+        }
+        C_BYTES_ENVIADOS.somar(corpo.length);
+
+        Request request = new Request.Builder()
+                .url(urlComDispositivo().build())
+                .header("Content-Encoding", "gzip")
+                .header("Authorization", autorizacao)
+                .post(RequestBody.create(corpo, JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            verificarAcesso(response);
+            if (!response.isSuccessful()) {
+                throw new IOException("Erro no envio: " + response.code() + " - "
+                        + (response.body() != null ? response.body().string() : ""));
+            }
+        }
+    }
+
+    private int receber() throws IOException {
+        long cursor = db.getEstadoSync(EcosDaCamaDB.SYNC_PULL_CURSOR);
+        int recebidas = 0;
+
+        while (true) {
+            long inicioMedicao = Metricas.agora();
+            HttpUrl url = urlComDispositivo()
+                    .addQueryParameter("desde", String.valueOf(cursor))
+                    .addQueryParameter("limite", String.valueOf(TAMANHO_LOTE))
+                    .build();
+            JSONObject resposta;
+            Request request = new Request.Builder().url(url).header("Authorization", autorizacao).get().build();
+            try (Response response = client.newCall(request).execute()) {
+                verificarAcesso(response);
+                String corpo = response.body() != null ? response.body().string() : "";
+                if (!response.isSuccessful()) {
+                    throw new IOException("Erro ao receber: " + response.code() + " - " + corpo);
+                }
+                resposta = new JSONObject(corpo);
+            } catch (JSONException e) {
+                throw new IOException("Erro ao processar a resposta do servidor.", e);
+            }
+
+            List<AlteracaoSync> lote = new ArrayList<>();
+            boolean temMais;
+            try {
+                JSONArray alteracoes = resposta.getJSONArray("alteracoes");
+                for (int i = 0; i < alteracoes.length(); i++) {
+                    lote.add(AlteracaoSync.deJson(alteracoes.getJSONObject(i)));
+                }
+                cursor = resposta.getLong("cursor");
+                temMais = resposta.optBoolean("temMais", false);
+            } catch (JSONException e) {
+                throw new IOException("Lote recebido inválido.", e);
+            }
+
+            // O lote e o novo cursor são gravados juntos, na mesma transação
+            int aplicadas = db.aplicarAlteracoesRemotas(lote, cursor);
+            if (aplicadas < 0) {
+                throw new IOException("Erro ao gravar as alterações recebidas.");
+            }
+            T_PULL_LOTE.registrarDesde(inicioMedicao);
+            recebidas += aplicadas;
+            C_RECEBIDAS.somar(aplicadas);
+            if (!temMais) break;
+        }
+        return recebidas;
+    }
+
+    private static void verificarAcesso(Response response) throws AcessoNegadoException {
+        if (response.code() == 401 || response.code() == 429) {
+            throw new AcessoNegadoException("Acesso ao diário negado: " + response.code());
+        }
+    }
+
+    private HttpUrl.Builder urlComDispositivo() {
+        return baseAlteracoes.newBuilder().addQueryParameter("dispositivo", dispositivo);
+    }
+
+    private static byte[] gzip(byte[] dados) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(dados.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(dados);
+        }
+        return saida.toByteArray();
+    }
+}
@@ -0,0 +1,109 @@
+package devandroid.bender.ecosdacama.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Gera vetores compactos (feature hashing) a partir do título e da descrição de um sonho.
+ * Os vetores são normalizados (norma L2 = 1), então o produto escalar entre dois deles
+ * já é a similaridade de cosseno.
+ */
+public class SonhoVetorizador {
+
+    public static final int DIMENSOES = 256;
+    public static final int TAMANHO_BYTES = DIMENSOES * 4;
+
+    private static final int TAMANHO_MINIMO_TOKEN = 3;
+
+    // Palavras muito comuns que não ajudam a diferenciar um sonho do outro
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "que", "com", "uma", "para", "por", "mas", "como", "dos", "das", "nos", "nas",
+            "ele", "ela", "eles", "elas", "meu", "minha", "seu", "sua", "era", "foi", "estava",
+            "entao", "quando", "onde", "tinha", "isso", "esse", "essa", "este", "esta", "tambem",
+            "mais", "muito", "depois", "sonhei", "sonho", "nao", "sim", "aos", "pela", "pelo"));
+
+    private SonhoVetorizador() { }
+
+    public static float[] vetorizar(String titulo, String descricao) {
+        float[] vetor = new float[DIMENSOES];
+        // O título pesa um pouco mais que cada palavra isolada da descrição
+        acumular(vetor, titulo, 2f);
+        acumular(vetor, descricao, 1f);
+
+        // TF sublinear: suaviza palavras repetidas muitas vezes
+        double soma = 0;
+        for (int i = 0; i < DIMENSOES; i++) {
+            float v = vetor[i];
+            if (v != 0f) {
+                v = (float) (Math.signum(v) * Math.log1p(Math.abs(v)));
+                vetor[i] = v;
+                soma += v * v;
+            }
+        }
+
+        if (soma > 0) {
+            float inverso = (float) (1.0 / Math.sqrt(soma));
+            for (int i = 0; i < DIMENSOES; i++) {
+                vetor[i] *= inverso;
+            }
+        }
+        return vetor;
+    }
+
+    private static void acumular(float[] vetor, String texto, float peso) {
+        if (texto == null || texto.isEmpty()) return;
+
+        String normalizado = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+
+        for (String token : normalizado.split("[^a-z0-9]+")) {
+            if (token.length() < TAMANHO_MINIMO_TOKEN || STOPWORDS.contains(token)) continue;
+
+            int hash = token.hashCode();
+            int indice = (hash & 0x7fffffff) % DIMENSOES;
+            // Um bit do hash decide o sinal, para que colisões tendam a se cancelar
+            float sinal = ((hash >>> 31) == 0) ? 1f : -1f;
+            vetor[indice] += sinal * peso;
+        }
+    }
+
+    public static byte[] paraBytes(float[] vetor) {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float v : vetor) {
+            buffer.putFloat(v);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Produto escalar direto sobre os bytes do BLOB (little-endian), sem converter o vetor
+     * gravado para float[]. Retorna 0 se o BLOB não tiver o tamanho esperado.
+     */
+    public static float similaridade(float[] consulta, byte[] blob) {
+        if (blob == null || blob.length != TAMANHO_BYTES) return 0f;
+
+        float produto = 0f;
+        for (int i = 0; i < DIMENSOES; i++) {
+            float q = consulta[i];
+            if (q != 0f) {
+                int p = i * 4;
+                int bits = (blob[p] & 0xff) | (blob[p + 1] & 0xff) << 8
+                        | (blob[p + 2] & 0xff) << 16 | (blob[p + 3] & 0xff) << 24;
+                produto += q * Float.intBitsToFloat(bits);
+            }
+        }
+        return produto;
+    }
+
+    public static boolean vazio(float[] vetor) {
+        for (float v : vetor) {
+            if (v != 0f) return false;
+        }
+        return true;
+    }
+}
@@ -12,9 +12,13 @@ import devandroid.bender.ecosdacama.model.Sonho;
 
 public class SonhosExporter {
 
+    // Retorna o arquivo gerado, ou null se não foi possível gravá-lo
     public static File exportSonhos(Context context, List<Sonho> sonhos) {
         File exportDir = context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS);
-        if (exportDir != null && !exportDir.exists()) {
+        if (exportDir == null) {
+            return null; // armazenamento externo indisponível
+        }
+        if (!exportDir.exists()) {
             exportDir.mkdirs();
         }
 
@@ -40,6 +44,7 @@ public class SonhosExporter {
             writer.flush();
         } catch (IOException e) {
             e.printStackTrace();
+            return null;
         }
 
         return file;
@@ -0,0 +1,222 @@
+package devandroid.bender.ecosdacama.view;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.ImageButton;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import devandroid.bender.ecosdacama.R;
+import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import devandroid.bender.ecosdacama.model.Sonho;
+
+public class CalendarioSonhosActivity extends AppCompatActivity {
+
+    private static final String[] DIAS_DA_SEMANA = {"D", "S", "T", "Q", "Q", "S", "S"};
+    private static final String[] MESES = {"Janeiro", "Fevereiro", "Março", "Abril", "Maio", "Junho",
+            "Julho", "Agosto", "Setembro", "Outubro", "Novembro", "Dezembro"};
+
+    private TextView tvMesAno, tvResumoDia, tvAlternarVisao;
+    private LinearLayout layoutDiasSemana;
+    private RecyclerView recyclerViewCalendario, recyclerViewSonhosDoDia;
+    private DiaCalendarioAdapter diaAdapter;
+    private MesCalendarioAdapter mesAdapter;
+    private EcosDaCamaDB dbHelper;
+    private Calendar mesAtual;
+    private int diaSelecionado = -1;
+    private boolean visaoAno = false; // true: os 12 meses do ano de mesAtual, com o total de cada um
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_calendario);
+
+        tvMesAno = findViewById(R.id.tvMesAno);
+        tvResumoDia = findViewById(R.id.tvResumoDia);
+        tvAlternarVisao = findViewById(R.id.tvAlternarVisao);
+        ImageButton btnMesAnterior = findViewById(R.id.btnMesAnterior);
+        ImageButton btnMesSeguinte = findViewById(R.id.btnMesSeguinte);
+        recyclerViewCalendario = findViewById(R.id.recyclerViewCalendario);
+        recyclerViewSonhosDoDia = findViewById(R.id.recyclerViewSonhosDoDia);
+
+        dbHelper = EcosDaCamaDB.getInstance(this);
+        mesAtual = Calendar.getInstance();
+        mesAtual.set(Calendar.DAY_OF_MONTH, 1);
+
+        layoutDiasSemana = findViewById(R.id.layoutDiasSemana);
+        for (String dia : DIAS_DA_SEMANA) {
+            TextView tv = new TextView(this);
+            tv.setText(dia);
+            tv.setGravity(Gravity.CENTER);
+            tv.setTextColor(ContextCompat.getColor(this, R.color.text_secondary));
+            layoutDiasSemana.addView(tv, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
+        }
+
+        diaAdapter = new DiaCalendarioAdapter((dia, contagem) -> {
+            diaSelecionado = dia;
+            carregarSonhosDoDia(dia, contagem);
+        });
+        mesAdapter = new MesCalendarioAdapter(mes -> {
+            // Tocar num mês abre o mês
+            mesAtual.set(Calendar.MONTH, mes);
+            diaSelecionado = -1;
+            mostrarVisao(false);
+        });
+        recyclerViewCalendario.setLayoutManager(new GridLayoutManager(this, 7));
+        recyclerViewCalendario.setAdapter(diaAdapter);
+        recyclerViewSonhosDoDia.setLayoutManager(new LinearLayoutManager(this));
+
+        btnMesAnterior.setOnClickListener(v -> {
+            mesAtual.add(visaoAno ? Calendar.YEAR : Calendar.MONTH, -1);
+            diaSelecionado = -1;
+            carregar();
+        });
+        btnMesSeguinte.setOnClickListener(v -> {
+            mesAtual.add(visaoAno ? Calendar.YEAR : Calendar.MONTH, 1);
+            diaSelecionado = -1;
+            carregar();
+        });
+        tvAlternarVisao.setOnClickListener(v -> {
+            diaSelecionado = -1;
+            mostrarVisao(!visaoAno);
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Recarrega ao voltar da edição, já que a data ou o próprio sonho podem ter mudado
+        carregar();
+    }
+
+    // Troca a grade entre os dias do mês (7 colunas) e os meses do ano (3 colunas)
+    private void mostrarVisao(boolean ano) {
+        visaoAno = ano;
+        tvAlternarVisao.setText(ano ? "Ver o mês" : "Ver o ano");
+        layoutDiasSemana.setVisibility(ano ? View.GONE : View.VISIBLE);
+        recyclerViewCalendario.setLayoutManager(new GridLayoutManager(this, ano ? 3 : 7));
+        recyclerViewCalendario.setAdapter(ano ? mesAdapter : diaAdapter);
+        carregar();
+    }
+
+    private void carregar() {
+        if (visaoAno) {
+            carregarAno();
+        } else {
+            carregarMes();
+        }
+    }
+
+    private void carregarAno() {
+        int ano = mesAtual.get(Calendar.YEAR);
+        tvMesAno.setText(String.valueOf(ano));
+        tvResumoDia.setText("Toque em um mês para ver os dias");
+        recyclerViewSonhosDoDia.setAdapter(null);
+
+        new Thread(() -> {
+            // No máximo 366 linhas da tabela de contagens; somar aqui evita uma consulta só para o ano
+            Map<String, Integer> contagemPorDia = dbHelper.getContagemPorDia(
+                    String.format(Locale.US, "%04d-01-01", ano), String.format(Locale.US, "%04d-12-31", ano));
+            int[] contagens = new int[12];
+            int total = 0;
+            for (Map.Entry<String, Integer> entrada : contagemPorDia.entrySet()) {
+                int mes = Integer.parseInt(entrada.getKey().substring(5, 7)) - 1;
+                contagens[mes] += entrada.getValue();
+                total += entrada.getValue();
+            }
+            int totalAno = total;
+
+            runOnUiThread(() -> {
+                // Ignora o resultado se o usuário já trocou de ano ou de visão enquanto carregava
+                if (!visaoAno || mesAtual.get(Calendar.YEAR) != ano) return;
+                mesAdapter.setAno(contagens);
+                tvResumoDia.setText(ano + ": " + totalAno + (totalAno == 1 ? " sonho" : " sonhos")
+                        + ". Toque em um mês para ver os dias");
+            });
+        }).start();
+    }
+
+    private void carregarMes() {
+        int ano = mesAtual.get(Calendar.YEAR);
+        int mes = mesAtual.get(Calendar.MONTH);
+        int diasNoMes = mesAtual.getActualMaximum(Calendar.DAY_OF_MONTH);
+        int deslocamento = mesAtual.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY;
+
+        tvMesAno.setText(MESES[mes] + " " + ano);
+        tvResumoDia.setText("Toque em um dia para ver os sonhos");
+        recyclerViewSonhosDoDia.setAdapter(null);
+
+        String inicio = String.format(Locale.US, "%04d-%02d-01", ano, mes + 1);
+        String fim = String.format(Locale.US, "%04d-%02d-%02d", ano, mes + 1, diasNoMes);
+
+        new Thread(() -> {
+            Map<String, Integer> contagemPorDia = dbHelper.getContagemPorDia(inicio, fim);
+
+            int[] dias = new int[deslocamento + diasNoMes];
+            int[] contagens = new int[dias.length];
+            for (int d = 1; d <= diasNoMes; d++) {
+                int posicao = deslocamento + d - 1;
+                dias[posicao] = d;
+                Integer total = contagemPorDia.get(String.format(Locale.US, "%04d-%02d-%02d", ano, mes + 1, d));
+                contagens[posicao] = total != null ? total : 0;
+            }
+
+            runOnUiThread(() -> {
+                // Ignora o resultado se o usuário já trocou de mês ou de visão enquanto carregava
+                if (visaoAno || mesAtual.get(Calendar.YEAR) != ano || mesAtual.get(Calendar.MONTH) != mes) return;
+                diaAdapter.setMes(dias, contagens, diaSelecionado);
+                if (diaSelecionado != -1) {
+                    carregarSonhosDoDia(diaSelecionado, contagens[deslocamento + diaSelecionado - 1]);
+                }
+            });
+        }).start();
+    }
+
+    private void carregarSonhosDoDia(int dia, int contagem) {
+        String data = String.format(Locale.US, "%02d/%02d/%04d",
+                dia, mesAtual.get(Calendar.MONTH) + 1, mesAtual.get(Calendar.YEAR));
+
+        if (contagem == 0) {
+            tvResumoDia.setText(data + ": nenhum sonho registrado");
+            recyclerViewSonhosDoDia.setAdapter(null);
+            return;
+        }
+
+        tvResumoDia.setText(data + ": carregando...");
+        new Thread(() -> {
+            List<Sonho> sonhos = dbHelper.getSonhosDoDia(data);
+            runOnUiThread(() -> {
+                if (dia != diaSelecionado) return;
+                tvResumoDia.setText(data + ": " + sonhos.size() + (sonhos.size() == 1 ? " sonho" : " sonhos"));
+                recyclerViewSonhosDoDia.setAdapter(new SonhoAdapter(new ArrayList<>(sonhos), new SonhoAdapter.OnItemClickListener() {
+                    @Override
+                    public void onItemClick(Sonho sonho) {
+                        Intent intent = new Intent(CalendarioSonhosActivity.this, EcosDaCamaActivity.class);
+                        intent.putExtra("sonho_id", sonho.getId());
+                        startActivity(intent);
+                    }
+
+                    @Override
+                    public void onDeleteSonho(Sonho sonho) {
+                        // A contagem do dia mudou: recarrega o mapa de calor e a lista do dia
+                        carregarMes();
+                    }
+                }, dbHelper));
+            });
+        }).start();
+    }
+}
@@ -0,0 +1,299 @@
+package devandroid.bender.ecosdacama.view;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.ViewTreeObserver;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ImageButton;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import devandroid.bender.ecosdacama.R;
+import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import devandroid.bender.ecosdacama.model.Sonho;
+import devandroid.bender.ecosdacama.util.DitadoContinuo;
+import devandroid.bender.ecosdacama.util.Metricas;
+
+/**
+ * Captura rápida, aberta pelo atalho do ícone e pelo widget, sem passar pela splash nem pela lista.
+ *
+ * Ao abrir não lê nada do banco: só infla um layout mínimo, foca o texto e, se a permissão de
+ * microfone já foi dada, começa o ditado. O sonho é gravado em segundo plano e a interpretação
+ * fica para depois, no editor.
+ *
+ * A primeira gravação (no Salvar ou ao sair da tela) insere o sonho; as seguintes atualizam a
+ * mesma linha, então sair e voltar não duplica nem perde o texto.
+ */
+public class CapturaRapidaActivity extends AppCompatActivity {
+
+    private static final int REQUEST_CODE_MICROFONE = 2;
+    private static final int TAMANHO_TITULO = 40;
+    // Um processo iniciado há menos que isso foi criado para abrir esta tela
+    private static final long LIMITE_INICIO_FRIO_MS = 5000;
+    private static final String ESTADO_ID_SALVO = "idSalvo";
+
+    private static final Metricas.Histograma T_INICIO_FRIO = Metricas.histograma("inicio.captura_rapida_frio");
+    private static final Metricas.Histograma T_INICIO_MORNO = Metricas.histograma("inicio.captura_rapida_morno");
+
+    private EditText editSonho;
+    private ImageButton btnMicrofone;
+    private TextView tvStatus;
+    private DitadoContinuo ditado;
+    private int inicioTrechoDitado = 0;
+    private int tamanhoTrechoDitado = 0;
+    private Button btnSalvar;
+    private boolean salvo = false;    // o texto atual já está no banco
+    private boolean fechando = false; // Salvar tocado, aguardando o fim do ditado e a gravação
+    private String dataCaptura;
+    private String horaCaptura;
+
+    // Uma gravação por vez, para que a atualização sempre enxergue o id da inserção anterior
+    private final ExecutorService gravacao = Executors.newSingleThreadExecutor();
+    private volatile long idSalvo = -1;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        long inicioCriacao = SystemClock.elapsedRealtime();
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_captura_rapida);
+
+        editSonho = findViewById(R.id.editSonhoRapido);
+        btnMicrofone = findViewById(R.id.btnMicrofoneRapido);
+        tvStatus = findViewById(R.id.tvStatusCaptura);
+        btnSalvar = findViewById(R.id.btnSalvarRapido);
+        if (savedInstanceState != null) {
+            idSalvo = savedInstanceState.getLong(ESTADO_ID_SALVO, -1);
+        }
+
+        editSonho.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                salvo = false;
+            }
+        });
+
+        ditado = new DitadoContinuo(this, new DitadoContinuo.Ouvinte() {
+            @Override
+            public void onParcial(String texto) {
+                substituirTrechoDitado(texto);
+            }
+
+            @Override
+            public void onFinal(String texto) {
+                substituirTrechoDitado(texto.isEmpty() ? "" : texto + " ");
+                inicioTrechoDitado += tamanhoTrechoDitado;
+                tamanhoTrechoDitado = 0;
+            }
+
+            @Override
+            public void onEstadoAlterado(boolean ativo) {
+                btnMicrofone.setImageResource(ativo ? android.R.drawable.ic_media_pause : android.R.drawable.ic_btn_speak_now);
+                tvStatus.setText(ativo ? "Ouvindo... pode falar." : "Conte seu sonho antes que ele fuja...");
+            }
+
+            @Override
+            public void onErro(String mensagem) {
+                Toast.makeText(CapturaRapidaActivity.this, mensagem, Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        btnMicrofone.setOnClickListener(v -> {
+            if (ditado.isAtivo()) {
+                ditado.parar();
+            } else if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) == PackageManager.PERMISSION_GRANTED) {
+                iniciarDitado();
+            } else {
+                ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO}, REQUEST_CODE_MICROFONE);
+            }
+        });
+
+        btnSalvar.setOnClickListener(v -> {
+            if (editSonho.getText().toString().trim().isEmpty()) {
+                Toast.makeText(this, "Por favor, digite a descrição do seu sonho.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            fechando = true;
+            btnSalvar.setEnabled(false);
+            // O último trecho ditado ainda pode estar a caminho; só grava depois que ele chegar
+            ditado.parar(() -> {
+                if (editSonho.getText().toString().trim().isEmpty()) {
+                    fechando = false;
+                    btnSalvar.setEnabled(true);
+                    return;
+                }
+                gravar(true);
+            });
+        });
+
+        medirInicio(inicioCriacao);
+    }
+
+    // Tempo até o primeiro quadro com o campo de texto pronto para digitar
+    private void medirInicio(long inicioCriacao) {
+        editSonho.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                editSonho.getViewTreeObserver().removeOnPreDrawListener(this);
+                long agora = SystemClock.elapsedRealtime();
+                long inicioProcesso = Process.getStartElapsedRealtime();
+                boolean frio = inicioCriacao - inicioProcesso < LIMITE_INICIO_FRIO_MS;
+                long decorridoMs = agora - (frio ? inicioProcesso : inicioCriacao);
+                (frio ? T_INICIO_FRIO : T_INICIO_MORNO).registrar(decorridoMs * 1000);
+                Log.i("CapturaRapida", "Pronta para digitar em " + decorridoMs + " ms (" + (frio ? "frio" : "morno") + ")");
+
+                editSonho.post(() -> {
+                    reportFullyDrawn();
+                    // O ditado só começa depois do primeiro quadro, para não atrasá-lo
+                    if (ContextCompat.checkSelfPermission(CapturaRapidaActivity.this, Manifest.permission.RECORD_AUDIO)
+                            == PackageManager.PERMISSION_GRANTED && DitadoContinuo.disponivel(CapturaRapidaActivity.this)) {
+                        iniciarDitado();
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putLong(ESTADO_ID_SALVO, idSalvo);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (fechando || isChangingConfigurations()) {
+            ditado.parar();
+            return;
+        }
+        // Sair da tela (voltar, trocar de app) não perde o que já foi contado, nem o último trecho
+        ditado.parar(() -> {
+            if (!salvo && !editSonho.getText().toString().trim().isEmpty()) {
+                gravar(false);
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ditado.destruir(); // entrega a gravação pendente do onStop, se houver
+        gravacao.shutdown();
+    }
+
+    private void iniciarDitado() {
+        if (!DitadoContinuo.disponivel(this)) {
+            Toast.makeText(this, "Seu dispositivo não suporta entrada de voz", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Editable texto = editSonho.getText();
+        if (texto.length() > 0 && !Character.isWhitespace(texto.charAt(texto.length() - 1))) {
+            texto.append(' ');
+        }
+        inicioTrechoDitado = texto.length();
+        tamanhoTrechoDitado = 0;
+        ditado.iniciar();
+    }
+
+    private void substituirTrechoDitado(String novoTrecho) {
+        Editable texto = editSonho.getText();
+        int inicio = Math.min(inicioTrechoDitado, texto.length());
+        int fim = Math.min(inicio + tamanhoTrechoDitado, texto.length());
+        texto.replace(inicio, fim, novoTrecho);
+        inicioTrechoDitado = inicio;
+        tamanhoTrechoDitado = novoTrecho.length();
+    }
+
+    // Insere o sonho na primeira vez e atualiza a mesma linha nas seguintes
+    private void gravar(boolean fecharDepois) {
+        salvo = true;
+        String descricao = editSonho.getText().toString().trim();
+        if (dataCaptura == null) {
+            Calendar agora = Calendar.getInstance();
+            dataCaptura = String.format(Locale.getDefault(), "%02d/%02d/%04d",
+                    agora.get(Calendar.DAY_OF_MONTH), agora.get(Calendar.MONTH) + 1, agora.get(Calendar.YEAR));
+            horaCaptura = String.format(Locale.getDefault(), "%02d:%02d",
+                    agora.get(Calendar.HOUR_OF_DAY), agora.get(Calendar.MINUTE));
+        }
+        Sonho sonho = new Sonho(tituloAutomatico(descricao), descricao, dataCaptura, horaCaptura);
+
+        // A gravação termina em segundo plano mesmo que a tela já tenha saído de vista
+        Context app = getApplicationContext();
+        gravacao.execute(() -> {
+            EcosDaCamaDB db = EcosDaCamaDB.getInstance(app);
+            boolean gravou = false;
+            if (idSalvo > 0) {
+                sonho.setId((int) idSalvo);
+                gravou = db.updateSonho(sonho) > 0;
+            }
+            // Primeira gravação, ou o sonho foi excluído na lista enquanto esta tela estava aberta
+            if (!gravou) {
+                long id = db.insertSonho(sonho);
+                gravou = id != -1;
+                if (gravou) idSalvo = id;
+            }
+            runOnUiThread(() -> aoGravar(gravou, fecharDepois));
+        });
+    }
+
+    private void aoGravar(boolean gravou, boolean fecharDepois) {
+        if (!gravou) {
+            Log.e("gravar", "Falha ao gravar o sonho da captura rápida");
+            salvo = false;
+            fechando = false;
+            btnSalvar.setEnabled(true);
+            Toast.makeText(getApplicationContext(), "Não foi possível salvar o sonho. Tente novamente.", Toast.LENGTH_LONG).show();
+            return;
+        }
+        if (fecharDepois) {
+            Toast.makeText(getApplicationContext(), "Sonho salvo! Interprete quando quiser.", Toast.LENGTH_SHORT).show();
+            finish();
+        }
+    }
+
+    // Início da descrição, cortado no fim de uma palavra
+    private static String tituloAutomatico(String descricao) {
+        String linha = descricao.split("\n", 2)[0].trim();
+        if (linha.length() <= TAMANHO_TITULO) return linha;
+        int corte = linha.lastIndexOf(' ', TAMANHO_TITULO);
+        return linha.substring(0, corte > 0 ? corte : TAMANHO_TITULO) + "...";
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CODE_MICROFONE) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                iniciarDitado();
+            } else {
+                Toast.makeText(this, "Permissão de microfone necessária para ditar o sonho.", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package devandroid.bender.ecosdacama.view;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import devandroid.bender.ecosdacama.R;
+
+public class DiaCalendarioAdapter extends RecyclerView.Adapter<DiaCalendarioAdapter.DiaViewHolder> {
+
+    // Mesma cor do botão de adicionar sonho, com a opacidade proporcional à quantidade
+    private static final int COR_BASE = Color.rgb(0xA0, 0x6C, 0xD7);
+
+    private int[] dias = new int[0];      // dia do mês por célula; 0 = célula vazia antes do dia 1
+    private int[] contagens = new int[0]; // sonhos em cada célula
+    private int maximo = 0;
+    private int selecionado = -1;
+    private final OnDiaClickListener listener;
+
+    public DiaCalendarioAdapter(OnDiaClickListener listener) {
+        this.listener = listener;
+    }
+
+    // diaSelecionado é o dia do mês que continua destacado (ex.: ao recarregar na volta do editor), ou -1
+    public void setMes(int[] dias, int[] contagens, int diaSelecionado) {
+        this.dias = dias;
+        this.contagens = contagens;
+        this.maximo = 0;
+        this.selecionado = -1;
+        for (int i = 0; i < contagens.length; i++) {
+            if (contagens[i] > maximo) maximo = contagens[i];
+            if (diaSelecionado > 0 && dias[i] == diaSelecionado) selecionado = i;
+        }
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public DiaViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_dia_calendario, parent, false);
+        return new DiaViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull DiaViewHolder holder, int position) {
+        holder.bind(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return dias.length;
+    }
+
+    class DiaViewHolder extends RecyclerView.ViewHolder {
+        TextView numero;
+
+        DiaViewHolder(@NonNull View itemView) {
+            super(itemView);
+            numero = itemView.findViewById(R.id.tvDiaNumero);
+        }
+
+        void bind(int position) {
+            int dia = dias[position];
+            if (dia == 0) {
+                numero.setText("");
+                numero.setBackgroundColor(Color.TRANSPARENT);
+                itemView.setOnClickListener(null);
+                itemView.setClickable(false);
+                return;
+            }
+
+            int contagem = contagens[position];
+            numero.setText(String.valueOf(dia));
+
+            numero.setBackgroundColor(corDaContagem(contagem, maximo));
+            numero.setSelected(position == selecionado);
+            numero.setTypeface(null, position == selecionado ? Typeface.BOLD : Typeface.NORMAL);
+
+            itemView.setOnClickListener(v -> {
+                int anterior = selecionado;
+                selecionado = getAdapterPosition();
+                if (anterior != -1) notifyItemChanged(anterior);
+                notifyItemChanged(selecionado);
+                listener.onDiaClick(dia, contagem);
+            });
+        }
+    }
+
+    // Sempre visível a partir de 1 sonho, chegando a opaco na célula mais cheia (dia do mês ou mês do ano)
+    static int corDaContagem(int contagem, int maximo) {
+        int alpha = 0;
+        if (contagem > 0 && maximo > 0) {
+            alpha = 60 + (195 * contagem) / maximo;
+        }
+        return Color.argb(alpha, Color.red(COR_BASE), Color.green(COR_BASE), Color.blue(COR_BASE));
+    }
+
+    public interface OnDiaClickListener {
+        void onDiaClick(int dia, int contagem);
+    }
+}
@@ -1,70 +1,84 @@
 package devandroid.bender.ecosdacama.view;
 
+import android.Manifest;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
 import android.content.ContentValues;
+import android.content.pm.PackageManager;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.Button;
 import android.widget.Spinner;
-import android.widget.DatePicker;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.TextView;
-import android.widget.TimePicker;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
-import devandroid.bender.ecosdacama.BuildConfig;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 import devandroid.bender.ecosdacama.R;
 import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import devandroid.bender.ecosdacama.model.Interpretacao;
 import devandroid.bender.ecosdacama.model.Sonho;
+import devandroid.bender.ecosdacama.util.DitadoContinuo;
+import devandroid.bender.ecosdacama.util.InterpretacaoAntecipada;
+import devandroid.bender.ecosdacama.util.InterpretadorDeSonhos;
+import devandroid.bender.ecosdacama.util.Metricas;
+import devandroid.bender.ecosdacama.util.RascunhoAutoSave;
+import devandroid.bender.ecosdacama.util.SonhoVetorizador;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 
 import android.content.Intent;
 import android.speech.RecognizerIntent;
 
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
+import okhttp3.Call;
 import okhttp3.Response;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class EcosDaCamaActivity extends AppCompatActivity {
 
     TextView tvDate, tvTime, tvSignificado;
-    Button btnSalvar, btnVerSignificado;
+    Button btnSalvar, btnVerSignificado, btnSonhosSemelhantes;
     EditText editSonho, editTitulo;
     ImageButton btnMicrofone;
     Spinner spinnerPromptStyle;
 
     private static final int REQUEST_CODE_SPEECH_INPUT = 1;
+    private static final int REQUEST_CODE_MICROFONE = 2;
+    private static final int QUANTIDADE_SEMELHANTES = 5;
+    private static final Metricas.Histograma T_SALVAR = Metricas.histograma("db.salvarSonhoNoBanco");
+    private static final Metricas.Histograma T_INTERPRETACAO = Metricas.histograma("ui.interpretacao_ida_e_volta");
     private EcosDaCamaDB dbHelper;
     private Calendar calendar;
     private int sonhoId = -1;
     private String significadoDoSonho = "";
-    private String descricaoBaseComSignificado = "";
-    private int estiloBaseComSignificado = 0;
-
-    private static final String API_URL = BuildConfig.DREAM_API_URL;
-    private final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(15, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(15, TimeUnit.SECONDS)
-            .build();
+    // Interpretação mais recente de cada estilo: as do histórico e as pedidas nesta tela
+    private final Map<Integer, Interpretacao> interpretacoesPorEstilo = new HashMap<>();
+    // Pedidas nesta tela; entram no histórico junto com o sonho, ao salvar
+    private final List<Interpretacao> interpretacoesNovas = new ArrayList<>();
+    private RascunhoAutoSave autoSave;
+    private InterpretacaoAntecipada antecipada;
+    private DitadoContinuo ditado;
+    private int inicioTrechoDitado = 0;   // onde começa, em editSonho, o trecho sendo ditado
+    private int tamanhoTrechoDitado = 0;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -80,6 +94,7 @@ public class EcosDaCamaActivity extends AppCompatActivity {
         btnVerSignificado = findViewById(R.id.btnVerSignificado);
         tvSignificado = findViewById(R.id.tvSignificado);
         spinnerPromptStyle = findViewById(R.id.spinnerPromptStyle);
+        btnSonhosSemelhantes = findViewById(R.id.btnSonhosSemelhantes);
 
         editSonho.addTextChangedListener(new TextWatcher() {
             @Override
@@ -91,60 +106,100 @@ public class EcosDaCamaActivity extends AppCompatActivity {
             }
 
             @Override
-            public void afterTextChanged(Editable s) { }
+            public void afterTextChanged(Editable s) {
+                autoSave.alterado();
+                antecipada.alterado();
+            }
+        });
+
+        editTitulo.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                autoSave.alterado();
+            }
         });
 
         spinnerPromptStyle.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                mostrarInterpretacaoDoEstilo();
                 atualizarVisibilidadeBotaoSignificado();
+                antecipada.alterado();
             }
 
             @Override
             public void onNothingSelected(AdapterView<?> parent) { }
         });
 
-        dbHelper = new EcosDaCamaDB(this);
+        dbHelper = EcosDaCamaDB.getInstance(this);
         calendar = Calendar.getInstance();
+        sonhoId = getIntent().getIntExtra("sonho_id", -1);
+        autoSave = new RascunhoAutoSave(this, sonhoId, this::capturarCampos);
+        // Só antecipa enquanto o botão estiver visível, isto é, quando ainda falta a interpretação
+        antecipada = new InterpretacaoAntecipada(this, () -> btnVerSignificado.getVisibility() == View.VISIBLE
+                ? new InterpretacaoAntecipada.Pedido(editSonho.getText().toString(), spinnerPromptStyle.getSelectedItemPosition())
+                : null);
         updateDateTimeDisplay();
 
         // Verifica se veio um sonho para editar
-        if (getIntent().hasExtra("sonho_id")) {
-            sonhoId = getIntent().getIntExtra("sonho_id", -1);
-            String titulo = getIntent().getStringExtra("titulo");
-            String descricao = getIntent().getStringExtra("descricao");
-            String data = getIntent().getStringExtra("data");
-            String hora = getIntent().getStringExtra("hora");
-            String significado = getIntent().getStringExtra("significado");
-
-            editTitulo.setText(titulo);
-            editSonho.setText(descricao);
-            tvDate.setText(data);
-            tvTime.setText(hora);
-
-            if (significado != null && !significado.isEmpty()) {
-                tvSignificado.setVisibility(View.VISIBLE);
-                tvSignificado.setText(significado);
-                significadoDoSonho = significado;
-                descricaoBaseComSignificado = descricao != null ? descricao : "";
-                estiloBaseComSignificado = spinnerPromptStyle.getSelectedItemPosition();
-            }
+        if (sonhoId != -1) {
+            // As listas só carregam a prévia; o texto completo vem do banco
+            btnSalvar.setEnabled(false);
+            new Thread(() -> {
+                Sonho sonho = dbHelper.getSonhoPorId(sonhoId);
+                Map<Integer, Interpretacao> historico = dbHelper.getInterpretacoesPorEstilo(sonhoId);
+                runOnUiThread(() -> {
+                    if (isFinishing() || isDestroyed()) return; // saiu antes de o sonho chegar
+                    interpretacoesPorEstilo.putAll(historico);
+                    if (sonho != null) preencherCampos(sonho);
+                    btnSalvar.setEnabled(true);
+                    restaurarRascunho();
+                });
+            }).start();
+        } else {
+            restaurarRascunho();
         }
 
         atualizarVisibilidadeBotaoSignificado();
         tvDate.setOnClickListener(v -> showDatePicker());
         tvTime.setOnClickListener(v -> showTimePicker());
 
+        ditado = new DitadoContinuo(this, new DitadoContinuo.Ouvinte() {
+            @Override
+            public void onParcial(String texto) {
+                substituirTrechoDitado(texto);
+            }
+
+            @Override
+            public void onFinal(String texto) {
+                substituirTrechoDitado(texto.isEmpty() ? "" : texto + " ");
+                // O próximo trecho começa depois deste
+                inicioTrechoDitado += tamanhoTrechoDitado;
+                tamanhoTrechoDitado = 0;
+            }
+
+            @Override
+            public void onEstadoAlterado(boolean ativo) {
+                btnMicrofone.setImageResource(ativo ? android.R.drawable.ic_media_pause : android.R.drawable.ic_btn_speak_now);
+            }
+
+            @Override
+            public void onErro(String mensagem) {
+                Toast.makeText(EcosDaCamaActivity.this, mensagem, Toast.LENGTH_SHORT).show();
+            }
+        });
+
         btnMicrofone.setOnClickListener(v -> {
-            Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-            intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-            intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
-            intent.putExtra(RecognizerIntent.EXTRA_PROMPT, "Fale seu sonho...");
-
-            try {
-                startActivityForResult(intent, REQUEST_CODE_SPEECH_INPUT);
-            } catch (Exception e) {
-                Toast.makeText(this, "Seu dispositivo não suporta entrada de voz", Toast.LENGTH_SHORT).show();
+            if (ditado.isAtivo()) {
+                ditado.parar();
+            } else {
+                iniciarDitado();
             }
         });
 
@@ -157,24 +212,171 @@ public class EcosDaCamaActivity extends AppCompatActivity {
             Sonho sonho = new Sonho(titulo, descricao, data, hora);
             sonho.setSignificado(significadoDoSonho);
 
-            salvarSonhoNoBanco(sonho);
+            // A gravação entra na fila do autosave, depois de qualquer escrita de rascunho pendente;
+            // a tela só fecha depois de gravado, para que a lista já o encontre ao voltar
+            List<Interpretacao> novas = new ArrayList<>(interpretacoesNovas);
             btnSalvar.setEnabled(false);
-            Toast.makeText(this, sonhoId != -1 ? "Sonho atualizado!" : "Sonho salvo!", Toast.LENGTH_SHORT).show();
-            finish();
+            autoSave.promover(() -> salvarSonhoNoBanco(sonho, novas), gravou -> {
+                if (gravou) {
+                    Toast.makeText(getApplicationContext(), sonhoId != -1 ? "Sonho atualizado!" : "Sonho salvo!", Toast.LENGTH_SHORT).show();
+                    finish();
+                } else {
+                    btnSalvar.setEnabled(true);
+                    Toast.makeText(getApplicationContext(), "Erro ao salvar o sonho. Tente novamente.", Toast.LENGTH_LONG).show();
+                }
+            });
         });
 
+        btnSonhosSemelhantes.setOnClickListener(v -> mostrarSonhosSemelhantes());
+
         btnVerSignificado.setOnClickListener(v -> {
             String textoDoSonho = editSonho.getText().toString();
             if (!textoDoSonho.isEmpty()) {
-                obterSignificadoDoSonho(textoDoSonho);
                 tvSignificado.setVisibility(View.VISIBLE);
                 tvSignificado.setText("Carregando significado...");
+                obterSignificadoDoSonho(textoDoSonho);
             } else {
                 Toast.makeText(this, "Por favor, digite a descrição do seu sonho.", Toast.LENGTH_SHORT).show();
             }
         });
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        ditado.parar();
+        autoSave.descarregar();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ditado.destruir();
+        antecipada.encerrar();
+        autoSave.encerrar();
+    }
+
+    private void iniciarDitado() {
+        if (!DitadoContinuo.disponivel(this)) {
+            // Sem serviço de reconhecimento embutido: usa a tela de voz do sistema
+            abrirReconhecimentoDoSistema();
+            return;
+        }
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO}, REQUEST_CODE_MICROFONE);
+            return;
+        }
+
+        // O ditado é anexado ao fim do texto, como antes
+        Editable texto = editSonho.getText();
+        if (texto.length() > 0 && !Character.isWhitespace(texto.charAt(texto.length() - 1))) {
+            texto.append(' ');
+        }
+        inicioTrechoDitado = texto.length();
+        tamanhoTrechoDitado = 0;
+        ditado.iniciar();
+    }
+
+    private void substituirTrechoDitado(String novoTrecho) {
+        Editable texto = editSonho.getText();
+        // Se o texto foi editado à mão durante o ditado, mantém os limites dentro do que existe
+        int inicio = Math.min(inicioTrechoDitado, texto.length());
+        int fim = Math.min(inicio + tamanhoTrechoDitado, texto.length());
+        texto.replace(inicio, fim, novoTrecho);
+        inicioTrechoDitado = inicio;
+        tamanhoTrechoDitado = novoTrecho.length();
+    }
+
+    private void abrirReconhecimentoDoSistema() {
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
+        intent.putExtra(RecognizerIntent.EXTRA_PROMPT, "Fale seu sonho...");
+
+        try {
+            startActivityForResult(intent, REQUEST_CODE_SPEECH_INPUT);
+        } catch (Exception e) {
+            Toast.makeText(this, "Seu dispositivo não suporta entrada de voz", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CODE_MICROFONE) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                iniciarDitado();
+            } else {
+                Toast.makeText(this, "Permissão de microfone necessária para ditar o sonho.", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+
+    private Sonho capturarCampos() {
+        return new Sonho(editTitulo.getText().toString(), editSonho.getText().toString(),
+                tvDate.getText().toString(), tvTime.getText().toString());
+    }
+
+    // Recupera o que foi digitado e não chegou a ser salvo (ex.: o app foi fechado no meio)
+    private void restaurarRascunho() {
+        autoSave.carregar(rascunho -> {
+            if (rascunho != null && !isFinishing()) {
+                Sonho atual = capturarCampos();
+                boolean diferente = !TextUtils.equals(rascunho.getTitulo(), atual.getTitulo())
+                        || !TextUtils.equals(rascunho.getDescricao(), atual.getDescricao())
+                        || !TextUtils.equals(rascunho.getData(), atual.getData())
+                        || !TextUtils.equals(rascunho.getHora(), atual.getHora());
+                if (diferente) {
+                    editTitulo.setText(rascunho.getTitulo());
+                    editSonho.setText(rascunho.getDescricao());
+                    tvDate.setText(rascunho.getData());
+                    tvTime.setText(rascunho.getHora());
+                    Toast.makeText(this, "Rascunho não salvo restaurado.", Toast.LENGTH_SHORT).show();
+                }
+            }
+            autoSave.iniciar();
+        });
+    }
+
+    private void preencherCampos(Sonho sonho) {
+        String descricao = sonho.getDescricao();
+        String significado = sonho.getSignificado();
+
+        editTitulo.setText(sonho.getTitulo());
+        editSonho.setText(descricao);
+        tvDate.setText(sonho.getData());
+        tvTime.setText(sonho.getHora());
+
+        if (significado != null && !significado.isEmpty()) {
+            tvSignificado.setVisibility(View.VISIBLE);
+            tvSignificado.setText(significado);
+            significadoDoSonho = significado;
+        }
+
+        // Abre no estilo da interpretação mais recente; a troca de estilo a exibe
+        Interpretacao maisRecente = null;
+        for (Interpretacao interpretacao : interpretacoesPorEstilo.values()) {
+            if (interpretacao.getEstilo() >= 0
+                    && (maisRecente == null || interpretacao.getCriadoEm() > maisRecente.getCriadoEm())) {
+                maisRecente = interpretacao;
+            }
+        }
+        if (maisRecente != null && maisRecente.getEstilo() < spinnerPromptStyle.getCount()) {
+            spinnerPromptStyle.setSelection(maisRecente.getEstilo());
+        }
+        mostrarInterpretacaoDoEstilo();
+        atualizarVisibilidadeBotaoSignificado();
+    }
+
+    // Mostra na hora, sem chamar a API, a interpretação já guardada para o estilo selecionado
+    private void mostrarInterpretacaoDoEstilo() {
+        Interpretacao salva = interpretacoesPorEstilo.get(spinnerPromptStyle.getSelectedItemPosition());
+        if (salva == null) return;
+        significadoDoSonho = salva.getTextoCompleto();
+        tvSignificado.setVisibility(View.VISIBLE);
+        tvSignificado.setText(significadoDoSonho);
+    }
+
     private void showDatePicker() {
         new DatePickerDialog(this, (view, year, month, dayOfMonth) -> {
             calendar.set(Calendar.YEAR, year);
@@ -204,6 +406,7 @@ public class EcosDaCamaActivity extends AppCompatActivity {
 
         tvDate.setText(dateText);
         tvTime.setText(timeText);
+        autoSave.alterado();
     }
 
     @Override
@@ -216,30 +419,9 @@ public class EcosDaCamaActivity extends AppCompatActivity {
             }
         }
     }
-    private String getPromptSelecionado() {
-        int posicaoSelecionada = spinnerPromptStyle.getSelectedItemPosition();
-
-        switch (posicaoSelecionada) {
-            case 0:
-                return "Você é um sábio intérprete dos sonhos. Traga significados simbólicos inspirados em tradições espirituais e arquetípicas, com tom poético, acolhedor e enigmático.";
-            case 1:
-                return "Você é um guia inspirado na psicologia dos sonhos. Relacione símbolos e emoções com arquétipos, inconsciente coletivo e aspectos internos, de forma clara e reflexiva.";
-            case 2:
-                return "Você é um amigo acolhedor. Ajude a pessoa a refletir sobre os símbolos dos sonhos e suas emoções, trazendo encorajamento e conselhos práticos simples para o dia.";
-            case 3:
-                return "Você é um contador de histórias. Conecte os símbolos do sonho a mitos, lendas e narrativas antigas, trazendo interpretações criativas e inspiradoras.";
-            case 4:
-                return "Você é um oráculo dos sonhos. Suas interpretações são simbólicas, intuitivas e misteriosas, com uma linguagem ritualística, oferecendo insights como mensagens ocultas.";
-            case 5:
-                return "Você é um guia motivacional dos sonhos. Extraia símbolos como aprendizados e transforme-os em mensagens positivas e práticas para fortalecer o dia da pessoa.";
-            case 6:
-                return "Você é um analista objetivo de sonhos. Forneça interpretações curtas e diretas, com foco nos símbolos principais, emoções centrais e reflexões rápidas.";
-            default:
-                return "Analise o seguinte sonho e me diga seu possível significado com base em interpretações comuns da simbologia dos sonhos. Seja objetivo e considere aspectos psicológicos e simbólicos tradicionais.";
-        }
-    }
-
-    private void salvarSonhoNoBanco(Sonho sonho) {
+    // Retorna false se nada foi gravado; o rascunho só é removido junto com o sonho
+    private boolean salvarSonhoNoBanco(Sonho sonho, List<Interpretacao> novas) {
+        long inicioMedicao = Metricas.agora();
         SQLiteDatabase db = dbHelper.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(EcosDaCamaDB.COLUMN_TITULO, sonho.getTitulo());
@@ -247,49 +429,124 @@ public class EcosDaCamaActivity extends AppCompatActivity {
         values.put(EcosDaCamaDB.COLUMN_DATA, sonho.getData());
         values.put(EcosDaCamaDB.COLUMN_HORA, sonho.getHora());
         values.put(EcosDaCamaDB.COLUMN_SIGNIFICADO, sonho.getSignificado());
+        values.put(EcosDaCamaDB.COLUMN_VETOR, EcosDaCamaDB.calcularVetor(sonho));
+        values.put(EcosDaCamaDB.COLUMN_PREVIA, EcosDaCamaDB.calcularPrevia(sonho.getDescricao()));
 
-        if (sonhoId != -1) {
-            db.update(EcosDaCamaDB.TABLE_SONHOS, values, "id = ?", new String[]{String.valueOf(sonhoId)});
-        } else {
-            db.insert(EcosDaCamaDB.TABLE_SONHOS, null, values);
+        // O sonho, suas novas interpretações e a remoção do rascunho são gravados juntos: ou tudo, ou nada
+        db.beginTransaction();
+        try {
+            long id = sonhoId;
+            if (sonhoId != -1) {
+                db.update(EcosDaCamaDB.TABLE_SONHOS, values, "id = ?", new String[]{String.valueOf(sonhoId)});
+            } else {
+                id = db.insert(EcosDaCamaDB.TABLE_SONHOS, null, values);
+            }
+            if (id == -1) {
+                Log.e("salvarSonhoNoBanco", "Erro ao inserir sonho");
+                return false;
+            }
+            for (Interpretacao interpretacao : novas) {
+                interpretacao.setSonhoId((int) id);
+                EcosDaCamaDB.inserirInterpretacao(db, interpretacao);
+            }
+            db.delete(EcosDaCamaDB.TABLE_RASCUNHOS, EcosDaCamaDB.COLUMN_SONHO_ID + " = ?", new String[]{String.valueOf(sonhoId)});
+            db.setTransactionSuccessful();
+            return true;
+        } catch (SQLException e) {
+            Log.e("salvarSonhoNoBanco", "Erro ao salvar sonho: " + e.getMessage());
+            return false;
+        } finally {
+            db.endTransaction();
+            T_SALVAR.registrarDesde(inicioMedicao);
+        }
+    }
+
+    private void mostrarSonhosSemelhantes() {
+        String titulo = editTitulo.getText().toString();
+        String descricao = editSonho.getText().toString();
+        float[] consulta = SonhoVetorizador.vetorizar(titulo, descricao);
+
+        if (SonhoVetorizador.vazio(consulta)) {
+            Toast.makeText(this, "Escreva um pouco mais do sonho para buscar semelhantes.", Toast.LENGTH_SHORT).show();
+            return;
         }
-        db.close();
+
+        btnSonhosSemelhantes.setEnabled(false);
+        new Thread(() -> {
+            List<Sonho> semelhantes = dbHelper.buscarSonhosSemelhantes(consulta, QUANTIDADE_SEMELHANTES, sonhoId);
+            runOnUiThread(() -> {
+                btnSonhosSemelhantes.setEnabled(true);
+                if (isFinishing()) return;
+
+                if (semelhantes.isEmpty()) {
+                    Toast.makeText(this, "Nenhum sonho semelhante encontrado.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+
+                String[] itens = new String[semelhantes.size()];
+                for (int i = 0; i < semelhantes.size(); i++) {
+                    Sonho s = semelhantes.get(i);
+                    itens[i] = String.format(Locale.getDefault(), "%s — %s (%d%%)",
+                            s.getTitulo(), s.getData(), Math.round(s.getSimilaridade() * 100));
+                }
+
+                new AlertDialog.Builder(this)
+                        .setTitle("Sonhos semelhantes")
+                        .setItems(itens, (dialog, which) -> abrirSonho(semelhantes.get(which).getId()))
+                        .setNegativeButton("Fechar", null)
+                        .show();
+            });
+        }).start();
+    }
+
+    private void abrirSonho(int id) {
+        Intent intent = new Intent(this, EcosDaCamaActivity.class);
+        intent.putExtra("sonho_id", id);
+        startActivity(intent);
     }
 
     private void obterSignificadoDoSonho(String textoDoSonho) {
-        JSONObject jsonObject = new JSONObject();
-        try {
-            jsonObject.put("sonho", textoDoSonho);
-            jsonObject.put("prompt", getPromptSelecionado());
+        final int estilo = spinnerPromptStyle.getSelectedItemPosition();
+        // Se a interpretação deste texto já foi pedida em segundo plano, aproveita a resposta
+        boolean antecipadaUsada = antecipada.usar(textoDoSonho, estilo, interpretacao -> {
+            if (interpretacao != null) {
+                receberInterpretacao(interpretacao);
+            } else {
+                pedirInterpretacao(textoDoSonho, estilo);
+            }
+        });
+        if (!antecipadaUsada) {
+            pedirInterpretacao(textoDoSonho, estilo);
+        }
+    }
 
+    private void pedirInterpretacao(String textoDoSonho, int estilo) {
+        Call chamada;
+        try {
+            chamada = InterpretadorDeSonhos.novaChamada(textoDoSonho, estilo);
         } catch (JSONException e) {
             Log.e("EcosDaCama", "Erro ao criar requisição JSON", e);
             runOnUiThread(() -> tvSignificado.setText("Erro ao criar requisição."));
             return;
         }
 
-        MediaType JSON = MediaType.parse("application/json; charset=utf-8");
-        RequestBody body = RequestBody.create(jsonObject.toString(), JSON);
-
-        Request request = new Request.Builder().url(API_URL).post(body).build();
-
         new Thread(() -> {
-            try (Response response = client.newCall(request).execute()) {
+            long inicioMedicao = Metricas.agora();
+            try (Response response = chamada.execute()) {
                 if (response.isSuccessful()) {
                     final String resposta = response.body().string();
-                    runOnUiThread(() -> {
-                        try {
-                            JSONObject respostaJson = new JSONObject(resposta);
-                            significadoDoSonho = respostaJson.getString("significado");
-                            tvSignificado.setText(significadoDoSonho);
-                            descricaoBaseComSignificado = editSonho.getText().toString();
-                            estiloBaseComSignificado = spinnerPromptStyle.getSelectedItemPosition();
-                            atualizarVisibilidadeBotaoSignificado();
-                        } catch (JSONException e) {
+                    T_INTERPRETACAO.registrarDesde(inicioMedicao);
+                    Interpretacao nova;
+                    try {
+                        nova = InterpretadorDeSonhos.lerResposta(resposta, estilo, textoDoSonho);
+                    } catch (JSONException e) {
+                        runOnUiThread(() -> {
                             tvSignificado.setText("Erro ao processar a resposta.");
                             significadoDoSonho = "";
-                        }
-                    });
+                        });
+                        return;
+                    }
+                    runOnUiThread(() -> receberInterpretacao(nova));
                 } else {
                     final String errorBody = response.body() != null ? response.body().string() : "Erro desconhecido";
                     runOnUiThread(() -> tvSignificado.setText("Erro: " + response.code() + " - " + errorBody));
@@ -301,15 +558,24 @@ public class EcosDaCamaActivity extends AppCompatActivity {
             }
         }).start();
     }
+
+    private void receberInterpretacao(Interpretacao nova) {
+        interpretacoesPorEstilo.put(nova.getEstilo(), nova);
+        interpretacoesNovas.add(nova);
+        // Se o estilo foi trocado durante a espera, a resposta fica guardada para ele
+        if (spinnerPromptStyle.getSelectedItemPosition() == nova.getEstilo()) {
+            significadoDoSonho = nova.getTextoCompleto();
+            tvSignificado.setText(significadoDoSonho);
+        }
+        atualizarVisibilidadeBotaoSignificado();
+    }
+
+    // O botão some quando o estilo atual já tem interpretação para o texto como está agora
     private void atualizarVisibilidadeBotaoSignificado() {
         String descricaoAtual = editSonho.getText().toString();
-        int estiloAtual = spinnerPromptStyle.getSelectedItemPosition();
-
-        boolean semSignificado = significadoDoSonho == null || significadoDoSonho.trim().isEmpty();
-        boolean descricaoMudou = !descricaoAtual.equals(descricaoBaseComSignificado);
-        boolean estiloMudou = estiloAtual != estiloBaseComSignificado;
+        Interpretacao salva = interpretacoesPorEstilo.get(spinnerPromptStyle.getSelectedItemPosition());
 
-        boolean deveExibir = semSignificado || descricaoMudou || estiloMudou;
+        boolean deveExibir = salva == null || !salva.correspondeA(descricaoAtual);
         btnVerSignificado.setVisibility(deveExibir ? View.VISIBLE : View.GONE);
     }
 }
@@ -1,24 +1,39 @@
 package devandroid.bender.ecosdacama.view;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.EditText;
+import android.widget.ImageButton;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.FileProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import devandroid.bender.ecosdacama.R;
 import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import devandroid.bender.ecosdacama.model.Interpretacao;
 import devandroid.bender.ecosdacama.model.Sonho;
+import devandroid.bender.ecosdacama.util.InterpretadorDeSonhos;
+import devandroid.bender.ecosdacama.util.Metricas;
+import devandroid.bender.ecosdacama.util.SonhosExporter;
 
 public class HomeSonhosActivity extends AppCompatActivity {
 
@@ -28,6 +43,24 @@ public class HomeSonhosActivity extends AppCompatActivity {
     private FloatingActionButton fabAddSonho;
     private EditText editTextSearch;
     private ImageView imageProfile;
+    private ImageView imageCalendario;
+    private LinearLayout layoutAcoesSelecao;
+    private TextView tvQuantidadeSelecionada;
+
+    private static final Metricas.Histograma T_BUSCA = Metricas.histograma("ui.busca_tecla_ate_render");
+    private long inicioBusca = 0;
+    private boolean limpandoBusca = false; // a própria tela está limpando o campo, não é uma busca
+    private final ViewTreeObserver.OnPreDrawListener medirBusca = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            recyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+            if (inicioBusca != 0) {
+                T_BUSCA.registrarDesde(inicioBusca);
+                inicioBusca = 0;
+            }
+            return true;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -36,10 +69,17 @@ public class HomeSonhosActivity extends AppCompatActivity {
 
         recyclerView = findViewById(R.id.recyclerViewSonhos);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        dbHelper = new EcosDaCamaDB(this);
+        dbHelper = EcosDaCamaDB.getInstance(this);
         fabAddSonho = findViewById(R.id.fabAddSonho);
         editTextSearch = findViewById(R.id.editTextSearch);
         imageProfile = findViewById(R.id.imageProfile);
+        imageCalendario = findViewById(R.id.imageCalendario);
+        layoutAcoesSelecao = findViewById(R.id.layoutAcoesSelecao);
+        tvQuantidadeSelecionada = findViewById(R.id.tvQuantidadeSelecionada);
+        ImageButton btnCancelarSelecao = findViewById(R.id.btnCancelarSelecao);
+        ImageButton btnExcluirSelecionados = findViewById(R.id.btnExcluirSelecionados);
+        ImageButton btnReinterpretarSelecionados = findViewById(R.id.btnReinterpretarSelecionados);
+        ImageButton btnExportarSelecionados = findViewById(R.id.btnExportarSelecionados);
 
         fabAddSonho.setOnClickListener(v -> {
             Intent intent = new Intent(HomeSonhosActivity.this, EcosDaCamaActivity.class);
@@ -49,6 +89,8 @@ public class HomeSonhosActivity extends AppCompatActivity {
         editTextSearch.addTextChangedListener(new TextWatcher() {
             @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
             @Override public void onTextChanged(CharSequence s, int start, int before, int count) {
+                if (limpandoBusca) return;
+                marcarInicioBusca();
                 searchSonhos(s.toString());
             }
             @Override public void afterTextChanged(Editable s) { }
@@ -58,13 +100,42 @@ public class HomeSonhosActivity extends AppCompatActivity {
                 Intent intent = new Intent(HomeSonhosActivity.this, PerfilActivity.class);
                 startActivity(intent);
         });
+
+        imageCalendario.setOnClickListener(v -> {
+            Intent intent = new Intent(HomeSonhosActivity.this, CalendarioSonhosActivity.class);
+            startActivity(intent);
+        });
+
+        btnCancelarSelecao.setOnClickListener(v -> sonhoAdapter.encerrarSelecao());
+        btnExcluirSelecionados.setOnClickListener(v -> excluirSelecionados());
+        btnReinterpretarSelecionados.setOnClickListener(v -> reinterpretarSelecionados());
+        btnExportarSelecionados.setOnClickListener(v -> exportarSelecionados());
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (sonhoAdapter != null && sonhoAdapter.isModoSelecao()) {
+            sonhoAdapter.encerrarSelecao();
+            return;
+        }
+        super.onBackPressed();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
         loadSonhosFromDatabase();
+        // A lista acabou de ser carregada inteira: limpar o campo não precisa buscar nem medir
+        limpandoBusca = true;
         editTextSearch.setText("");
+        limpandoBusca = false;
+    }
+
+    // Mede da tecla até o quadro em que a lista filtrada é desenhada
+    private void marcarInicioBusca() {
+        if (inicioBusca != 0) return; // já há uma medição aguardando o próximo quadro
+        inicioBusca = Metricas.agora();
+        recyclerView.getViewTreeObserver().addOnPreDrawListener(medirBusca);
     }
 
     private void searchSonhos(String query) {
@@ -73,7 +144,7 @@ public class HomeSonhosActivity extends AppCompatActivity {
     }
 
     private void loadSonhosFromDatabase() {
-        List<Sonho> sonhos = dbHelper.getAllSonhos();
+        List<Sonho> sonhos = dbHelper.getSonhosResumo();
 
         if (sonhos.isEmpty()) {
             Toast.makeText(this, "Nenhum sonho encontrado!", Toast.LENGTH_SHORT).show();
@@ -84,21 +155,115 @@ public class HomeSonhosActivity extends AppCompatActivity {
             public void onItemClick(Sonho sonho) {
                 Intent intent = new Intent(HomeSonhosActivity.this, EcosDaCamaActivity.class);
                 intent.putExtra("sonho_id", sonho.getId());
-                intent.putExtra("titulo", sonho.getTitulo());
-                intent.putExtra("descricao", sonho.getDescricao());
-                intent.putExtra("data", sonho.getData());
-                intent.putExtra("hora", sonho.getHora());
-                intent.putExtra("significado", sonho.getSignificado()); // Campo adicionado aqui
                 startActivity(intent);
             }
 
             @Override
             public void onDeleteSonho(Sonho sonho) {
-                dbHelper.deleteSonho(sonho.getId());
-                loadSonhosFromDatabase();
+                // O adapter já excluiu o sonho e tirou o card da lista
+            }
+
+            @Override
+            public void onSelecaoAlterada(int quantidade) {
+                atualizarBarraSelecao(quantidade);
             }
         }, dbHelper);
+        sonhoAdapter.setSelecaoMultiplaHabilitada(true);
+        atualizarBarraSelecao(0);
 
         recyclerView.setAdapter(sonhoAdapter);
     }
+
+    private void atualizarBarraSelecao(int quantidade) {
+        boolean selecionando = sonhoAdapter.isModoSelecao();
+        layoutAcoesSelecao.setVisibility(selecionando ? View.VISIBLE : View.GONE);
+        fabAddSonho.setVisibility(selecionando ? View.GONE : View.VISIBLE);
+        tvQuantidadeSelecionada.setText(quantidade == 1 ? "1 selecionado" : quantidade + " selecionados");
+    }
+
+    private void excluirSelecionados() {
+        List<Integer> ids = sonhoAdapter.getSelecionados();
+        if (ids.isEmpty()) return;
+
+        new AlertDialog.Builder(this)
+                .setTitle("Excluir sonhos")
+                .setMessage("Você tem certeza que deseja excluir " + ids.size() + " sonho(s)?")
+                .setPositiveButton("Sim", (dialog, which) -> new Thread(() -> {
+                    int excluidos = dbHelper.deleteSonhos(ids);
+                    runOnUiThread(() -> {
+                        if (excluidos > 0) {
+                            sonhoAdapter.removerSonhos(ids);
+                            sonhoAdapter.encerrarSelecao();
+                            Toast.makeText(this, excluidos + " sonho(s) excluído(s)!", Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(this, "Erro ao excluir os sonhos.", Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                }).start())
+                .setNegativeButton("Não", null)
+                .show();
+    }
+
+    private void reinterpretarSelecionados() {
+        List<Integer> ids = sonhoAdapter.getSelecionados();
+        if (ids.isEmpty()) return;
+
+        new AlertDialog.Builder(this)
+                .setTitle("Reinterpretar com o estilo")
+                .setItems(R.array.prompt_style_options, (dialog, estilo) -> {
+                    sonhoAdapter.encerrarSelecao();
+                    Toast.makeText(this, "Reinterpretando " + ids.size() + " sonho(s)...", Toast.LENGTH_SHORT).show();
+
+                    new Thread(() -> {
+                        // As chamadas de rede ficam fora da transação; só a gravação final é feita em lote
+                        List<Interpretacao> interpretacoes = new ArrayList<>();
+                        int falhas = 0;
+                        for (Sonho sonho : dbHelper.getSonhosPorIds(ids)) {
+                            String descricao = sonho.getDescricao();
+                            if (descricao == null || descricao.trim().isEmpty()) continue;
+                            try {
+                                Interpretacao interpretacao = InterpretadorDeSonhos.interpretar(descricao, estilo);
+                                interpretacao.setSonhoId(sonho.getId());
+                                interpretacoes.add(interpretacao);
+                            } catch (IOException e) {
+                                falhas++;
+                            }
+                        }
+                        int atualizados = dbHelper.registrarInterpretacoes(interpretacoes);
+                        final int totalFalhas = falhas;
+                        runOnUiThread(() -> {
+                            // Relê a lista (com a busca atual) para os cartões mostrarem os novos estilos
+                            if (atualizados > 0) searchSonhos(editTextSearch.getText().toString());
+                            Toast.makeText(this,
+                                    atualizados + " sonho(s) reinterpretado(s)" + (totalFalhas > 0 ? ", " + totalFalhas + " com erro." : "."),
+                                    Toast.LENGTH_LONG).show();
+                        });
+                    }).start();
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void exportarSelecionados() {
+        List<Integer> ids = sonhoAdapter.getSelecionados();
+        if (ids.isEmpty()) return;
+
+        new Thread(() -> {
+            List<Sonho> sonhos = dbHelper.getSonhosPorIds(ids);
+            File file = SonhosExporter.exportSonhos(this, sonhos);
+            runOnUiThread(() -> {
+                sonhoAdapter.encerrarSelecao();
+                if (file == null) {
+                    Toast.makeText(this, "Erro ao exportar os sonhos.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
+                Intent intent = new Intent(Intent.ACTION_SEND);
+                intent.setType("text/plain");
+                intent.putExtra(Intent.EXTRA_STREAM, uri);
+                intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                startActivity(Intent.createChooser(intent, "Exportar sonhos selecionados"));
+            });
+        }).start();
+    }
 }
@@ -0,0 +1,71 @@
+package devandroid.bender.ecosdacama.view;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import devandroid.bender.ecosdacama.R;
+
+// Visão do ano: os 12 meses com o total de sonhos de cada um, no mesmo mapa de calor dos dias
+public class MesCalendarioAdapter extends RecyclerView.Adapter<MesCalendarioAdapter.MesViewHolder> {
+
+    private static final String[] MESES_ABREVIADOS = {"Jan", "Fev", "Mar", "Abr", "Mai", "Jun",
+            "Jul", "Ago", "Set", "Out", "Nov", "Dez"};
+
+    private int[] contagens = new int[12];
+    private int maximo = 0;
+    private final OnMesClickListener listener;
+
+    public MesCalendarioAdapter(OnMesClickListener listener) {
+        this.listener = listener;
+    }
+
+    public void setAno(int[] contagens) {
+        this.contagens = contagens;
+        this.maximo = 0;
+        for (int contagem : contagens) {
+            if (contagem > maximo) maximo = contagem;
+        }
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public MesViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_mes_calendario, parent, false);
+        return new MesViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MesViewHolder holder, int position) {
+        holder.bind(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return MESES_ABREVIADOS.length;
+    }
+
+    class MesViewHolder extends RecyclerView.ViewHolder {
+        TextView resumo;
+
+        MesViewHolder(@NonNull View itemView) {
+            super(itemView);
+            resumo = itemView.findViewById(R.id.tvMesResumo);
+        }
+
+        void bind(int mes) {
+            int contagem = contagens[mes];
+            resumo.setText(MESES_ABREVIADOS[mes] + "\n" + contagem);
+            resumo.setBackgroundColor(DiaCalendarioAdapter.corDaContagem(contagem, maximo));
+            itemView.setOnClickListener(v -> listener.onMesClick(mes));
+        }
+    }
+
+    public interface OnMesClickListener {
+        // mes começa em 0, como em Calendar.MONTH
+        void onMesClick(int mes);
+    }
+}
@@ -0,0 +1,87 @@
+package devandroid.bender.ecosdacama.view;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Environment;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.FileProvider;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import devandroid.bender.ecosdacama.R;
+import devandroid.bender.ecosdacama.model.RelatorioManutencao;
+import devandroid.bender.ecosdacama.util.ManutencaoDoBanco;
+import devandroid.bender.ecosdacama.util.Metricas;
+
+// Tela de depuração com os tempos coletados desde que o app foi aberto
+public class MetricasActivity extends AppCompatActivity {
+
+    private TextView tvMetricas;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metricas);
+
+        tvMetricas = findViewById(R.id.tvMetricas);
+        Button btnAtualizar = findViewById(R.id.btnAtualizarMetricas);
+        Button btnZerar = findViewById(R.id.btnZerarMetricas);
+        Button btnExportar = findViewById(R.id.btnExportarMetricas);
+
+        btnAtualizar.setOnClickListener(v -> atualizar());
+        btnZerar.setOnClickListener(v -> {
+            Metricas.zerar();
+            atualizar();
+        });
+        btnExportar.setOnClickListener(v -> exportarJson());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        atualizar();
+    }
+
+    private void atualizar() {
+        tvMetricas.setText(Metricas.resumo() + "\n\n" + ManutencaoDoBanco.resumo(this));
+    }
+
+    private void exportarJson() {
+        File exportDir = getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS);
+        if (exportDir != null && !exportDir.exists()) {
+            exportDir.mkdirs();
+        }
+        File file = new File(exportDir, "metricas_desempenho.json");
+
+        try (FileWriter writer = new FileWriter(file)) {
+            JSONObject json = Metricas.paraJson();
+            RelatorioManutencao manutencao = ManutencaoDoBanco.getUltimoRelatorio(this);
+            if (manutencao != null) {
+                json.put("manutencaoBanco", manutencao.paraJson());
+            }
+            writer.write(json.toString(2));
+        } catch (IOException | JSONException e) {
+            Log.e("MetricasActivity", "Erro ao exportar métricas: " + e.getMessage());
+            Toast.makeText(this, "Erro ao exportar métricas.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("application/json");
+        intent.putExtra(Intent.EXTRA_STREAM, uri);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(intent, "Exportar métricas"));
+    }
+}
@@ -3,22 +3,36 @@ package devandroid.bender.ecosdacama.view;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.text.InputType;
+import android.util.Log;
+import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SwitchCompat;
 import androidx.core.content.FileProvider;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import devandroid.bender.ecosdacama.R;
 import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
 import devandroid.bender.ecosdacama.model.Sonho;
+import devandroid.bender.ecosdacama.util.InterpretacaoAntecipada;
+import devandroid.bender.ecosdacama.util.SincronizadorDeSonhos;
 import devandroid.bender.ecosdacama.util.SonhosExporter;
 
 public class PerfilActivity extends AppCompatActivity {
     private Button btnLogout;
     private Button btnExportarSonhos;
+    private Button btnMetricas;
+    private Button btnSincronizar;
+    private SwitchCompat switchInterpretacaoAntecipada;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -26,11 +40,108 @@ public class PerfilActivity extends AppCompatActivity {
         setContentView(R.layout.activity_perfil);
         btnExportarSonhos = findViewById(R.id.btnExportarSonhos); // novo botão
         btnExportarSonhos.setOnClickListener(v -> exportarSonhosParaArquivo());
+        btnMetricas = findViewById(R.id.btnMetricas);
+        btnMetricas.setOnClickListener(v -> startActivity(new Intent(this, MetricasActivity.class)));
+        btnSincronizar = findViewById(R.id.btnSincronizar);
+        btnSincronizar.setVisibility(SincronizadorDeSonhos.configurado() ? View.VISIBLE : View.GONE);
+        btnSincronizar.setOnClickListener(v -> {
+            if (SincronizadorDeSonhos.getCodigoDiario(this).isEmpty()
+                    || SincronizadorDeSonhos.getSenhaDiario(this).isEmpty()) {
+                pedirCodigoDiario();
+            } else {
+                sincronizar(null, null);
+            }
+        });
+        // Toque longo troca o diário usado na sincronização
+        btnSincronizar.setOnLongClickListener(v -> {
+            pedirCodigoDiario();
+            return true;
+        });
+        // Pede a interpretação em segundo plano enquanto o sonho é escrito (gasta cota da API)
+        switchInterpretacaoAntecipada = findViewById(R.id.switchInterpretacaoAntecipada);
+        switchInterpretacaoAntecipada.setChecked(InterpretacaoAntecipada.isAtiva(this));
+        switchInterpretacaoAntecipada.setOnCheckedChangeListener((botao, ativa) -> {
+            InterpretacaoAntecipada.setAtiva(this, ativa);
+            if (ativa) {
+                Toast.makeText(this, "Até " + InterpretacaoAntecipada.LIMITE_DIARIO + " interpretações antecipadas por dia.", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    // O mesmo código e a mesma senha em todos os aparelhos fazem com que eles compartilhem o diário
+    private void pedirCodigoDiario() {
+        EditText editCodigo = new EditText(this);
+        editCodigo.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD);
+        editCodigo.setHint("ex.: meu-diario-2024");
+        editCodigo.setText(SincronizadorDeSonhos.getCodigoDiario(this));
+
+        EditText editSenha = new EditText(this);
+        editSenha.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD);
+        editSenha.setHint("senha do diário");
+        editSenha.setText(SincronizadorDeSonhos.getSenhaDiario(this));
+
+        LinearLayout campos = new LinearLayout(this);
+        campos.setOrientation(LinearLayout.VERTICAL);
+        campos.addView(editCodigo);
+        campos.addView(editSenha);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Código do diário")
+                .setMessage("Use o mesmo código e a mesma senha nos aparelhos que devem compartilhar os sonhos "
+                        + "(código: 4 a 64 letras, números, - ou _; senha: ao menos " + SincronizadorDeSonhos.SENHA_MINIMA
+                        + " caracteres). O primeiro aparelho a usar um código define a senha dele.")
+                .setView(campos)
+                .setPositiveButton("Sincronizar", (dialog, which) -> {
+                    String codigo = editCodigo.getText().toString().trim();
+                    String senha = editSenha.getText().toString();
+                    if (!codigo.matches("[A-Za-z0-9_-]{4,64}")) {
+                        Toast.makeText(this, "Código inválido.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    if (senha.length() < SincronizadorDeSonhos.SENHA_MINIMA || senha.length() > SincronizadorDeSonhos.SENHA_MAXIMA) {
+                        Toast.makeText(this, "Senha inválida.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    sincronizar(codigo, senha);
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void sincronizar(String novoCodigo, String novaSenha) {
+        btnSincronizar.setEnabled(false);
+        btnSincronizar.setText("Sincronizando...");
+        new Thread(() -> {
+            String mensagem = "Não foi possível sincronizar. Tente novamente.";
+            try {
+                if (novoCodigo != null) {
+                    SincronizadorDeSonhos.setDiario(this, novoCodigo, novaSenha);
+                }
+                SincronizadorDeSonhos.Resultado resultado = new SincronizadorDeSonhos(this).sincronizar();
+                mensagem = "Sincronizado: " + resultado.enviadas + " enviados, " + resultado.recebidas + " recebidos.";
+            } catch (SincronizadorDeSonhos.AcessoNegadoException e) {
+                Log.e("sincronizar", "Erro ao sincronizar: " + e.getMessage());
+                mensagem = "Senha do diário incorreta ou tentativas demais. Confira o código e a senha.";
+            } catch (IOException e) {
+                Log.e("sincronizar", "Erro ao sincronizar: " + e.getMessage());
+            } catch (RuntimeException e) {
+                // Resposta malformada do servidor, erro do SQLite ao aplicar uma alteração etc.
+                Log.e("sincronizar", "Erro inesperado ao sincronizar: " + e.getMessage(), e);
+            } finally {
+                // O botão sempre volta, mesmo que a sincronização tenha falhado no meio
+                String finalMensagem = mensagem;
+                runOnUiThread(() -> {
+                    btnSincronizar.setEnabled(true);
+                    btnSincronizar.setText("Sincronizar");
+                    Toast.makeText(this, finalMensagem, Toast.LENGTH_LONG).show();
+                });
+            }
+        }).start();
     }
 
     private void exportarSonhosParaArquivo() {
         // 1. Buscar todos os sonhos do banco
-        EcosDaCamaDB db = new EcosDaCamaDB(this);
+        EcosDaCamaDB db = EcosDaCamaDB.getInstance(this);
         List<Sonho> sonhos = db.getAllSonhos();
 
         if (sonhos.isEmpty()) {
@@ -40,6 +151,10 @@ public class PerfilActivity extends AppCompatActivity {
 
         // 2. Exportar para arquivo
         File file = SonhosExporter.exportSonhos(this, sonhos);
+        if (file == null) {
+            Toast.makeText(this, "Erro ao exportar os sonhos.", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
         // 3. Compartilhar para salvar no Google Drive
         Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
@@ -1,5 +1,6 @@
 package devandroid.bender.ecosdacama.view;
 
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,11 +9,24 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.annotation.NonNull;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import devandroid.bender.ecosdacama.R;
 import devandroid.bender.ecosdacama.model.Sonho;
 import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SonhoAdapter extends RecyclerView.Adapter<SonhoAdapter.SonhoViewHolder> {
 
@@ -20,16 +34,67 @@ public class SonhoAdapter extends RecyclerView.Adapter<SonhoAdapter.SonhoViewHol
     private OnItemClickListener listener;
     private EcosDaCamaDB dbHelper;
 
+    // Quantos cards além dos visíveis, no sentido da rolagem, já têm o texto medido em segundo plano
+    private static final int PREVIAS_ANTECIPADAS = 6;
+    private static final Executor EXECUTOR_TEXTO = Executors.newSingleThreadExecutor();
+
+    // Parâmetros de medição do TextView da prévia, obtidos no primeiro bind
+    private PrecomputedTextCompat.Params paramsPrevia;
+    private final LruCache<Integer, Future<PrecomputedTextCompat>> previasPreparadas = new LruCache<>(64);
+
+    // Seleção múltipla (ativada com toque longo quando habilitada pela tela)
+    private boolean selecaoMultiplaHabilitada = false;
+    private boolean modoSelecao = false;
+    private final Set<Integer> selecionados = new HashSet<>();
+
+    // Emoji de cada estilo de interpretação, na ordem de 'prompt_style_options'
+    private String[] emojisEstilos;
+
+    // Mede as prévias dos cards que estão para entrar na tela, antes que o RecyclerView os vincule
+    private final RecyclerView.OnScrollListener anteciparAoRolar = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+            LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+            if (dy >= 0) {
+                int ultimo = layoutManager.findLastVisibleItemPosition();
+                if (ultimo != RecyclerView.NO_POSITION) anteciparPrevias(ultimo + 1);
+            } else {
+                int primeiro = layoutManager.findFirstVisibleItemPosition();
+                if (primeiro != RecyclerView.NO_POSITION) anteciparPrevias(primeiro - PREVIAS_ANTECIPADAS);
+            }
+        }
+    };
+
     public SonhoAdapter(List<Sonho> sonhos, OnItemClickListener listener, EcosDaCamaDB dbHelper) {
         this.sonhos = sonhos;
         this.listener = listener;
         this.dbHelper = dbHelper;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(anteciparAoRolar);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(anteciparAoRolar);
+    }
+
     @NonNull
     @Override
     public SonhoViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_dream_card, parent, false);
+        if (emojisEstilos == null) {
+            String[] estilos = parent.getResources().getStringArray(R.array.prompt_style_options);
+            emojisEstilos = new String[estilos.length];
+            for (int i = 0; i < estilos.length; i++) {
+                emojisEstilos[i] = estilos[i].trim().split(" ", 2)[0];
+            }
+        }
         return new SonhoViewHolder(view);
     }
 
@@ -39,29 +104,79 @@ public class SonhoAdapter extends RecyclerView.Adapter<SonhoAdapter.SonhoViewHol
         holder.bind(sonho);
     }
 
+    // Mede o texto fora da thread principal; o TextView só espera o resultado ao ser medido
+    private Future<PrecomputedTextCompat> obterPrevia(Sonho sonho) {
+        Future<PrecomputedTextCompat> previa = previasPreparadas.get(sonho.getId());
+        if (previa == null) {
+            String texto = sonho.getPrevia() != null ? sonho.getPrevia() : "";
+            previa = PrecomputedTextCompat.getTextFuture(texto, paramsPrevia, EXECUTOR_TEXTO);
+            previasPreparadas.put(sonho.getId(), previa);
+        }
+        return previa;
+    }
+
+    private void anteciparPrevias(int inicio) {
+        if (paramsPrevia == null) return;
+        int fim = Math.min(inicio + PREVIAS_ANTECIPADAS, sonhos.size());
+        for (int i = Math.max(inicio, 0); i < fim; i++) {
+            obterPrevia(sonhos.get(i));
+        }
+    }
+
     @Override
     public int getItemCount() {
         return sonhos.size();
     }
 
     class SonhoViewHolder extends RecyclerView.ViewHolder {
-        TextView titulo, data, conteudo;
+        CardView card;
+        TextView titulo, data, conteudo, estilos;
         ImageButton btnDelete;
 
         SonhoViewHolder(@NonNull View itemView) {
             super(itemView);
+            card = itemView.findViewById(R.id.cardSonho);
             titulo = itemView.findViewById(R.id.tituloCard);
             data = itemView.findViewById(R.id.dataCard);
             conteudo = itemView.findViewById(R.id.conteudoCard);
+            estilos = itemView.findViewById(R.id.estilosCard);
             btnDelete = itemView.findViewById(R.id.btnDelete);
         }
 
         void bind(final Sonho sonho) {
             titulo.setText(sonho.getTitulo());
             data.setText(sonho.getData());
-            conteudo.setText(sonho.getDescricao());
+            if (paramsPrevia == null) {
+                paramsPrevia = TextViewCompat.getTextMetricsParams(conteudo);
+            }
+            ((AppCompatTextView) conteudo).setTextFuture(obterPrevia(sonho));
+            String badges = emojisDosEstilos(sonho.getEstilosInterpretados());
+            estilos.setVisibility(badges.isEmpty() ? View.GONE : View.VISIBLE);
+            estilos.setText(badges);
+
+            boolean selecionado = selecionados.contains(sonho.getId());
+            card.setCardBackgroundColor(ContextCompat.getColor(itemView.getContext(),
+                    selecionado ? R.color.surface_card_selected : R.color.surface_card));
+            btnDelete.setVisibility(modoSelecao ? View.GONE : View.VISIBLE);
+
+            itemView.setOnClickListener(v -> {
+                if (modoSelecao) {
+                    alternarSelecao(sonho, getAdapterPosition());
+                } else {
+                    listener.onItemClick(sonho);
+                }
+            });
 
-            itemView.setOnClickListener(v -> listener.onItemClick(sonho));
+            itemView.setOnLongClickListener(v -> {
+                if (!selecaoMultiplaHabilitada) return false;
+                if (!modoSelecao) {
+                    modoSelecao = true;
+                    // Esconde a lixeira de todos os cards visíveis
+                    notifyItemRangeChanged(0, sonhos.size());
+                }
+                alternarSelecao(sonho, getAdapterPosition());
+                return true;
+            });
 
             btnDelete.setOnClickListener(v -> {
                 new AlertDialog.Builder(itemView.getContext())
@@ -75,6 +190,7 @@ public class SonhoAdapter extends RecyclerView.Adapter<SonhoAdapter.SonhoViewHol
                                 notifyItemRemoved(position);
                             }
                             Toast.makeText(itemView.getContext(), "Sonho excluído!", Toast.LENGTH_SHORT).show();
+                            listener.onDeleteSonho(sonho);
                         })
                         .setNegativeButton("Não", null)
                         .show();
@@ -82,13 +198,104 @@ public class SonhoAdapter extends RecyclerView.Adapter<SonhoAdapter.SonhoViewHol
         }
     }
 
+    private String emojisDosEstilos(int bits) {
+        if (bits == 0) return "";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < emojisEstilos.length; i++) {
+            if ((bits & (1 << i)) != 0) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(emojisEstilos[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void alternarSelecao(Sonho sonho, int position) {
+        if (!selecionados.remove(sonho.getId())) {
+            selecionados.add(sonho.getId());
+        }
+        if (position != RecyclerView.NO_POSITION) {
+            notifyItemChanged(position);
+        }
+        listener.onSelecaoAlterada(selecionados.size());
+    }
+
     public interface OnItemClickListener {
         void onItemClick(Sonho sonho);
+
+        // Chamado depois que a lixeira do card excluiu o sonho do banco e o removeu da lista
         void onDeleteSonho(Sonho sonho);
+
+        // Só chamado quando a seleção múltipla está habilitada
+        default void onSelecaoAlterada(int quantidade) { }
+    }
+
+    public void setSelecaoMultiplaHabilitada(boolean habilitada) {
+        this.selecaoMultiplaHabilitada = habilitada;
+    }
+
+    public boolean isModoSelecao() {
+        return modoSelecao;
+    }
+
+    public List<Integer> getSelecionados() {
+        return new ArrayList<>(selecionados);
+    }
+
+    public void encerrarSelecao() {
+        if (!modoSelecao) return;
+        modoSelecao = false;
+        selecionados.clear();
+        notifyItemRangeChanged(0, sonhos.size());
+        listener.onSelecaoAlterada(0);
+    }
+
+    /**
+     * Remove os sonhos informados da lista e aplica a mudança como um único diff,
+     * em vez de recarregar a lista inteira.
+     */
+    public void removerSonhos(List<Integer> ids) {
+        Set<Integer> removidos = new HashSet<>(ids);
+        List<Sonho> novaLista = new ArrayList<>(sonhos.size());
+        for (Sonho sonho : sonhos) {
+            if (!removidos.contains(sonho.getId())) {
+                novaLista.add(sonho);
+            }
+        }
+        selecionados.removeAll(removidos);
+        aplicarLista(novaLista);
+    }
+
+    private void aplicarLista(List<Sonho> novaLista) {
+        final List<Sonho> antiga = sonhos;
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return antiga.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return novaLista.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return antiga.get(oldItemPosition).getId() == novaLista.get(newItemPosition).getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return antiga.get(oldItemPosition) == novaLista.get(newItemPosition);
+            }
+        }, false);
+        sonhos = novaLista;
+        diff.dispatchUpdatesTo(this);
     }
 
     public void updateList(List<Sonho> novosSonhos) {
         this.sonhos = novosSonhos;
+        previasPreparadas.evictAll();
         notifyDataSetChanged();
     }
 }
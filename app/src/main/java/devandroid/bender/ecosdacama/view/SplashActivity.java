@@ -8,6 +8,7 @@ import android.os.Handler;
 
 import devandroid.bender.ecosdacama.R;
 import devandroid.bender.ecosdacama.database.EcosDaCamaDB;
+import devandroid.bender.ecosdacama.util.ManutencaoDoBanco;
 
 public class SplashActivity extends AppCompatActivity {
 
@@ -18,6 +19,7 @@ public class SplashActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
+        ManutencaoDoBanco.agendar(this);
         comutarTelaSplash();
     }
 
@@ -26,7 +28,7 @@ public class SplashActivity extends AppCompatActivity {
             @Override
             public void run() {
 
-                EcosDaCamaDB db = new EcosDaCamaDB(SplashActivity.this);
+                EcosDaCamaDB db = EcosDaCamaDB.getInstance(SplashActivity.this);
                 Intent telaPrincipal = new Intent(SplashActivity.this, HomeSonhosActivity.class);
 
                 startActivity(telaPrincipal);
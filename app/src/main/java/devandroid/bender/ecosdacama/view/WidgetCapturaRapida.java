@@ -0,0 +1,28 @@
+package devandroid.bender.ecosdacama.view;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.Context;
+import android.content.Intent;
+import android.widget.RemoteViews;
+
+import devandroid.bender.ecosdacama.R;
+
+// Widget de um toque que abre a captura rápida direto da tela inicial
+public class WidgetCapturaRapida extends AppWidgetProvider {
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        Intent intent = new Intent(context, CapturaRapidaActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        PendingIntent abrirCaptura = PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_captura_rapida);
+        views.setOnClickPendingIntent(R.id.widgetCapturaRapida, abrirCaptura);
+        for (int appWidgetId : appWidgetIds) {
+            appWidgetManager.updateAppWidget(appWidgetId, views);
+        }
+    }
+}
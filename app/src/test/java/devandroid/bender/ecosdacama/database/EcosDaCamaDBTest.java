@@ -0,0 +1,167 @@
+package devandroid.bender.ecosdacama.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+import java.util.List;
+
+import devandroid.bender.ecosdacama.model.AlteracaoSync;
+import devandroid.bender.ecosdacama.model.RelatorioManutencao;
+import devandroid.bender.ecosdacama.model.Sonho;
+
+// Triggers de sincronização e de rascunho rodando no SQLite de verdade (Robolectric)
+@RunWith(RobolectricTestRunner.class)
+public class EcosDaCamaDBTest {
+
+    private EcosDaCamaDB db;
+
+    @Before
+    public void abrir() {
+        db = EcosDaCamaDB.getInstance(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void fechar() {
+        EcosDaCamaDB.descartarInstancia();
+        RuntimeEnvironment.getApplication().deleteDatabase("sonhos_db");
+    }
+
+    private int inserir(String titulo) {
+        return (int) db.insertSonho(new Sonho(titulo, "Uma casa antiga cheia de portas", "01/02/2024", "07:30"));
+    }
+
+    private AlteracaoSync unicaPendente() {
+        List<AlteracaoSync> pendentes = db.getAlteracoesPendentes(0, 10);
+        assertEquals(1, pendentes.size());
+        return pendentes.get(0);
+    }
+
+    @Test
+    public void insercaoLocalEntraNaFila() {
+        inserir("Casa");
+        AlteracaoSync alteracao = unicaPendente();
+        assertEquals(32, alteracao.getUuid().length());
+        assertEquals(1, alteracao.getVersao());
+        assertTrue(alteracao.getSeqLocal() > 0);
+        assertTrue(alteracao.getAtualizadoEm() > 0);
+    }
+
+    @Test
+    public void edicaoLocalGanhaNovaVersaoEVoltaParaOFimDaFila() {
+        int id = inserir("Casa");
+        AlteracaoSync antes = unicaPendente();
+
+        Sonho editado = db.getSonhoPorId(id);
+        editado.setTitulo("Casa na praia");
+        db.updateSonho(editado);
+
+        AlteracaoSync depois = unicaPendente();
+        assertEquals(antes.getUuid(), depois.getUuid());
+        assertEquals(2, depois.getVersao());
+        assertTrue(depois.getSeqLocal() > antes.getSeqLocal());
+        assertTrue(depois.getAtualizadoEm() > antes.getAtualizadoEm());
+    }
+
+    @Test
+    public void gravacaoSemMudancaNaoEntraNaFila() {
+        int id = inserir("Casa");
+        AlteracaoSync antes = unicaPendente();
+
+        db.updateSonho(db.getSonhoPorId(id));
+
+        AlteracaoSync depois = unicaPendente();
+        assertEquals(1, depois.getVersao());
+        assertEquals(antes.getSeqLocal(), depois.getSeqLocal());
+    }
+
+    @Test
+    public void exclusaoLocalDeixaLapide() {
+        int id = inserir("Casa");
+        String uuid = unicaPendente().getUuid();
+
+        db.deleteSonho(id);
+
+        assertTrue(db.getAlteracoesPendentes(0, 10).isEmpty());
+        List<AlteracaoSync> exclusoes = db.getExclusoesPendentes(0, 10);
+        assertEquals(1, exclusoes.size());
+        assertEquals(uuid, exclusoes.get(0).getUuid());
+        assertTrue(exclusoes.get(0).isExcluido());
+    }
+
+    @Test
+    public void alteracaoRemotaNaoVoltaParaAFila() {
+        AlteracaoSync remota = new AlteracaoSync("0123456789abcdef0123456789abcdef", 3, 1000, false);
+        remota.setConteudo("Mar", "Nadava no mar com golfinhos", "02/02/2024", "06:00", "");
+
+        assertEquals(1, db.aplicarAlteracoesRemotas(Collections.singletonList(remota), 42));
+
+        assertTrue(db.getAlteracoesPendentes(0, 10).isEmpty());
+        assertEquals(42, db.getEstadoSync(EcosDaCamaDB.SYNC_PULL_CURSOR));
+        assertEquals(1, db.getAllSonhos().size());
+    }
+
+    @Test
+    public void exclusaoRemotaNaoVoltaParaAFila() {
+        inserir("Casa");
+        AlteracaoSync local = unicaPendente();
+        AlteracaoSync exclusao = new AlteracaoSync(local.getUuid(), 0, local.getAtualizadoEm() + 1, true);
+
+        assertEquals(1, db.aplicarAlteracoesRemotas(Collections.singletonList(exclusao), 7));
+
+        assertTrue(db.getAllSonhos().isEmpty());
+        assertTrue(db.getExclusoesPendentes(0, 10).isEmpty());
+    }
+
+    @Test
+    public void edicaoLocalMaisRecenteVenceARemota() {
+        int id = inserir("Casa");
+        AlteracaoSync local = unicaPendente();
+        AlteracaoSync antiga = new AlteracaoSync(local.getUuid(), 5, local.getAtualizadoEm() - 1, false);
+        antiga.setConteudo("Versão antiga", "", "", "", "");
+
+        assertEquals(0, db.aplicarAlteracoesRemotas(Collections.singletonList(antiga), 8));
+
+        assertEquals("Casa", db.getSonhoPorId(id).getTitulo());
+        assertEquals(8, db.getEstadoSync(EcosDaCamaDB.SYNC_PULL_CURSOR)); // o cursor anda mesmo assim
+    }
+
+    @Test
+    public void rascunhoSaiJuntoComOSonho() {
+        int id = inserir("Casa");
+        db.salvarRascunho(id, new Sonho("Casa", "rascunho do sonho existente", "01/02/2024", "07:30"));
+        db.salvarRascunho(-1, new Sonho("Novo", "rascunho de um sonho novo", "01/02/2024", "07:30"));
+
+        db.deleteSonho(id);
+
+        assertNull(db.getRascunho(id));
+        assertNotNull(db.getRascunho(-1));
+    }
+
+    @Test
+    public void manutencaoDevolveAsPaginasLivres() {
+        StringBuilder longa = new StringBuilder();
+        for (int i = 0; i < 200; i++) longa.append("um corredor comprido cheio de portas ");
+        int[] ids = new int[40];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (int) db.insertSonho(new Sonho("Sonho " + i, longa.toString(), "01/02/2024", "07:30"));
+        }
+        assertTrue(db.executarManutencao().isAutoVacuumIncremental()); // a primeira passa para o modo incremental
+
+        for (int id : ids) db.deleteSonho(id);
+        RelatorioManutencao relatorio = db.executarManutencao();
+
+        assertTrue(relatorio.getPaginasLivresAntes() > 0);
+        assertEquals(0, relatorio.getPaginasLivresDepois());
+        assertTrue(relatorio.getBytesDepois() < relatorio.getBytesAntes());
+    }
+}
@@ -0,0 +1,57 @@
+package devandroid.bender.ecosdacama.model;
+
+import static devandroid.bender.ecosdacama.model.AlteracaoSync.AUSENTE;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AlteracaoSyncTest {
+
+    private static AlteracaoSync edicao(long atualizadoEm) {
+        return new AlteracaoSync("uuid-1", 2, atualizadoEm, false);
+    }
+
+    private static AlteracaoSync exclusao(long atualizadoEm) {
+        return new AlteracaoSync("uuid-1", 2, atualizadoEm, true);
+    }
+
+    @Test
+    public void edicaoDeSonhoNovoEntra() {
+        assertTrue(edicao(1000).venceLocal(AUSENTE, AUSENTE));
+    }
+
+    @Test
+    public void edicaoMaisRecenteVence() {
+        assertTrue(edicao(2000).venceLocal(1999, AUSENTE));
+        assertFalse(edicao(2000).venceLocal(2001, AUSENTE));
+    }
+
+    @Test
+    public void empateDeEdicaoMantemALocal() {
+        assertFalse(edicao(2000).venceLocal(2000, AUSENTE));
+    }
+
+    @Test
+    public void edicaoAntigaNaoRessuscitaSonhoExcluidoAqui() {
+        assertFalse(edicao(2000).venceLocal(AUSENTE, 3000));
+        assertFalse(edicao(2000).venceLocal(AUSENTE, 2000));
+        assertTrue(edicao(2000).venceLocal(AUSENTE, 1000));
+    }
+
+    @Test
+    public void exclusaoMaisRecenteVence() {
+        assertTrue(exclusao(2000).venceLocal(1000, AUSENTE));
+        assertTrue(exclusao(2000).venceLocal(2000, AUSENTE)); // no empate a exclusão vence
+    }
+
+    @Test
+    public void edicaoLocalPosteriorSobreviveAExclusao() {
+        assertFalse(exclusao(2000).venceLocal(2500, AUSENTE));
+    }
+
+    @Test
+    public void exclusaoDeSonhoQueNaoExisteAquiERegistrada() {
+        assertTrue(exclusao(2000).venceLocal(AUSENTE, AUSENTE));
+    }
+}
@@ -0,0 +1,60 @@
+package devandroid.bender.ecosdacama.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+public class InterpretacaoAntecipadaTest {
+
+    // 2024-03-10T01:30:00Z: ainda dia 9 em São Paulo, já dia 10 em UTC
+    private static final long MADRUGADA_UTC = 1710034200000L;
+    private static final TimeZone SAO_PAULO = TimeZone.getTimeZone("America/Sao_Paulo");
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Test
+    public void diaSegueOCalendarioLocal() {
+        assertEquals(20240309, InterpretacaoAntecipada.diaLocal(MADRUGADA_UTC, SAO_PAULO));
+        assertEquals(20240310, InterpretacaoAntecipada.diaLocal(MADRUGADA_UTC, UTC));
+    }
+
+    @Test
+    public void limiteSoRecomecaNaMeiaNoiteLocal() {
+        long antesDaMeiaNoite = InterpretacaoAntecipada.diaLocal(MADRUGADA_UTC - 3_600_000L, SAO_PAULO);
+        long depoisDaMeiaNoiteUtc = InterpretacaoAntecipada.diaLocal(MADRUGADA_UTC, SAO_PAULO);
+        long depoisDaMeiaNoiteLocal = InterpretacaoAntecipada.diaLocal(MADRUGADA_UTC + 3 * 3_600_000L, SAO_PAULO);
+
+        int usadas = InterpretacaoAntecipada.LIMITE_DIARIO;
+        assertEquals(usadas, InterpretacaoAntecipada.usadasHoje(antesDaMeiaNoite, usadas, depoisDaMeiaNoiteUtc));
+        assertEquals(0, InterpretacaoAntecipada.usadasHoje(antesDaMeiaNoite, usadas, depoisDaMeiaNoiteLocal));
+    }
+
+    @Test
+    public void diaGravadoNoFormatoAntigoNaoContaComoHoje() {
+        long diasDesde1970 = MADRUGADA_UTC / 86_400_000L;
+        long hoje = InterpretacaoAntecipada.diaLocal(MADRUGADA_UTC, SAO_PAULO);
+        assertEquals(0, InterpretacaoAntecipada.usadasHoje(diasDesde1970, 7, hoje));
+        assertEquals(0, InterpretacaoAntecipada.usadasHoje(-1, 0, hoje));
+    }
+
+    @Test
+    public void caracteresAlteradosIgnoraInicioEFimEmComum() {
+        assertEquals(0, InterpretacaoAntecipada.caracteresAlterados("sonhei com o mar", "sonhei com o mar"));
+        assertEquals(5, InterpretacaoAntecipada.caracteresAlterados("sonhei com o mar", "sonhei com o mar azul"));
+        assertEquals(3, InterpretacaoAntecipada.caracteresAlterados("sonhei com o mar", "sonhei com o rio"));
+        assertEquals(5, InterpretacaoAntecipada.caracteresAlterados("uma casa velha", "uma velha"));
+    }
+
+    @Test
+    public void caracteresAlteradosComTextoVazio() {
+        assertEquals(4, InterpretacaoAntecipada.caracteresAlterados("", "lago"));
+        assertEquals(4, InterpretacaoAntecipada.caracteresAlterados("lago", ""));
+    }
+
+    @Test
+    public void repeticaoNaoEContadaDuasVezes() {
+        // "aa" -> "aaa": o início e o fim em comum não podem se sobrepor
+        assertEquals(1, InterpretacaoAntecipada.caracteresAlterados("aa", "aaa"));
+    }
+}
@@ -0,0 +1,38 @@
+package devandroid.bender.ecosdacama.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ManutencaoDoBancoTest {
+
+    @Test
+    public void buscaPorIndiceNaoCusta() {
+        assertEquals(0, ManutencaoDoBanco.custo("SEARCH sonhos USING INTEGER PRIMARY KEY (rowid=?)"));
+        assertEquals(0, ManutencaoDoBanco.custo("SEARCH sonhos USING INDEX idx_sonhos_data_hora (data=?)"));
+        assertEquals(0, ManutencaoDoBanco.custo("SCAN sonhos USING COVERING INDEX idx_sonhos_seq_local"));
+        assertEquals(0, ManutencaoDoBanco.custo(""));
+    }
+
+    @Test
+    public void varreduraSemIndiceCusta() {
+        assertEquals(1, ManutencaoDoBanco.custo("SCAN sonhos"));
+        assertEquals(1, ManutencaoDoBanco.custo("SCAN TABLE sonhos")); // formato do SQLite antes da 3.36
+    }
+
+    @Test
+    public void ordenacaoTemporariaCusta() {
+        assertEquals(1, ManutencaoDoBanco.custo("SEARCH sonhos USING INDEX idx_sonhos_data (data=?)\nUSE TEMP B-TREE FOR ORDER BY"));
+        assertEquals(2, ManutencaoDoBanco.custo("SCAN sonhos\nUSE TEMP B-TREE FOR ORDER BY"));
+    }
+
+    @Test
+    public void perderOIndiceEPiorQueTroca() {
+        String comIndice = "SEARCH interpretacoes USING INDEX idx_interpretacoes_sonho (sonho_id=?)";
+        String outroIndice = "SEARCH interpretacoes USING INDEX idx_interpretacoes_sonho_criado (sonho_id=?)";
+        String semIndice = "SCAN interpretacoes\nUSE TEMP B-TREE FOR ORDER BY";
+        assertEquals(ManutencaoDoBanco.custo(comIndice), ManutencaoDoBanco.custo(outroIndice));
+        assertTrue(ManutencaoDoBanco.custo(semIndice) > ManutencaoDoBanco.custo(comIndice));
+    }
+}
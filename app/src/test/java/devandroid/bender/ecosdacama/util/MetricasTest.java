@@ -0,0 +1,76 @@
+package devandroid.bender.ecosdacama.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class MetricasTest {
+
+    @Test
+    public void mesmoNomeDevolveOMesmoHistograma() {
+        assertSame(Metricas.histograma("teste.mesmo_nome"), Metricas.histograma("teste.mesmo_nome"));
+        assertSame(Metricas.contador("teste.mesmo_nome"), Metricas.contador("teste.mesmo_nome"));
+    }
+
+    @Test
+    public void histogramaVazio() {
+        Metricas.Histograma h = Metricas.histograma("teste.vazio");
+        assertEquals(0, h.getContagem());
+        assertEquals(0, h.getMedia());
+        assertEquals(0, h.percentil(0.5));
+    }
+
+    @Test
+    public void contagemMediaEMaximo() {
+        Metricas.Histograma h = Metricas.histograma("teste.media");
+        h.registrar(10);
+        h.registrar(20);
+        h.registrar(30);
+        assertEquals(3, h.getContagem());
+        assertEquals(20, h.getMedia());
+        assertEquals(30, h.getMaximo());
+    }
+
+    @Test
+    public void valorNegativoContaComoZero() {
+        Metricas.Histograma h = Metricas.histograma("teste.negativo");
+        h.registrar(-5);
+        assertEquals(1, h.getContagem());
+        assertEquals(0, h.getMaximo());
+        assertEquals(0, h.percentil(0.99));
+    }
+
+    @Test
+    public void percentilEOLimiteSuperiorDoBalde() {
+        Metricas.Histograma h = Metricas.histograma("teste.percentil");
+        // 90 valores em [64, 128) e 10 em [1024, 2048)
+        for (int i = 0; i < 90; i++) h.registrar(100);
+        for (int i = 0; i < 10; i++) h.registrar(1500);
+        assertEquals(127, h.percentil(0.5));
+        assertEquals(127, h.percentil(0.9));
+        assertEquals(1500, h.percentil(0.99)); // limitado pelo máximo visto, não pelo fim do balde
+    }
+
+    @Test
+    public void registrarNanosConverteParaMicrossegundos() {
+        Metricas.Histograma h = Metricas.histograma("teste.nanos");
+        h.registrarNanos(2_500_000);
+        assertEquals(2500, h.getMaximo());
+    }
+
+    @Test
+    public void zerarLimpaHistogramasEContadores() {
+        Metricas.Histograma h = Metricas.histograma("teste.zerar");
+        Metricas.Contador c = Metricas.contador("teste.zerar");
+        h.registrar(42);
+        c.somar(3);
+        c.incrementar();
+        assertEquals(4, c.get());
+
+        Metricas.zerar();
+        assertEquals(0, h.getContagem());
+        assertEquals(0, h.getMaximo());
+        assertEquals(0, c.get());
+    }
+}
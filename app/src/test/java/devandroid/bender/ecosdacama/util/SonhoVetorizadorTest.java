@@ -0,0 +1,71 @@
+package devandroid.bender.ecosdacama.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SonhoVetorizadorTest {
+
+    private static final float DELTA = 1e-5f;
+
+    @Test
+    public void vetorENormalizado() {
+        float[] vetor = SonhoVetorizador.vetorizar("Casa antiga", "Eu andava por uma casa antiga cheia de portas");
+        double soma = 0;
+        for (float v : vetor) soma += v * v;
+        assertEquals(1.0, soma, DELTA);
+    }
+
+    @Test
+    public void textoSemPalavrasUteisGeraVetorVazio() {
+        // Só stopwords e palavras curtas
+        assertTrue(SonhoVetorizador.vazio(SonhoVetorizador.vetorizar("", "eu sonhei que era uma")));
+        assertTrue(SonhoVetorizador.vazio(SonhoVetorizador.vetorizar(null, null)));
+    }
+
+    @Test
+    public void acentosEMaiusculasNaoMudamOVetor() {
+        float[] a = SonhoVetorizador.vetorizar("Avião", "Caía do AVIÃO sobre o oceano");
+        float[] b = SonhoVetorizador.vetorizar("aviao", "caia do aviao sobre o oceano");
+        for (int i = 0; i < SonhoVetorizador.DIMENSOES; i++) {
+            assertEquals(a[i], b[i], DELTA);
+        }
+    }
+
+    @Test
+    public void similaridadeComOProprioVetorEUm() {
+        float[] vetor = SonhoVetorizador.vetorizar("Mar", "Nadava no mar com golfinhos ao entardecer");
+        byte[] blob = SonhoVetorizador.paraBytes(vetor);
+        assertEquals(SonhoVetorizador.TAMANHO_BYTES, blob.length);
+        assertEquals(1.0, SonhoVetorizador.similaridade(vetor, blob), DELTA);
+    }
+
+    @Test
+    public void similaridadeIgualAoProdutoEscalar() {
+        float[] a = SonhoVetorizador.vetorizar("Escola", "Prova de matemática na escola e ninguém me ajudava");
+        float[] b = SonhoVetorizador.vetorizar("Escola", "Voltei para a escola e esqueci a prova");
+        double esperado = 0;
+        for (int i = 0; i < SonhoVetorizador.DIMENSOES; i++) esperado += a[i] * b[i];
+        assertEquals(esperado, SonhoVetorizador.similaridade(a, SonhoVetorizador.paraBytes(b)), DELTA);
+    }
+
+    @Test
+    public void sonhosParecidosPontuamMaisQueDiferentes() {
+        float[] consulta = SonhoVetorizador.vetorizar("Cobra", "Uma cobra enorme no quintal de casa");
+        float parecido = SonhoVetorizador.similaridade(consulta,
+                SonhoVetorizador.paraBytes(SonhoVetorizador.vetorizar("Cobras", "Cobra verde no quintal da casa da avó")));
+        float diferente = SonhoVetorizador.similaridade(consulta,
+                SonhoVetorizador.paraBytes(SonhoVetorizador.vetorizar("Voo", "Voava sobre montanhas geladas e nuvens")));
+        assertTrue(parecido > diferente);
+    }
+
+    @Test
+    public void blobComTamanhoErradoPontuaZero() {
+        float[] vetor = SonhoVetorizador.vetorizar("Mar", "Nadava no mar com golfinhos");
+        assertEquals(0.0, SonhoVetorizador.similaridade(vetor, new byte[10]), 0.0);
+        assertEquals(0.0, SonhoVetorizador.similaridade(vetor, null), 0.0);
+        assertFalse(SonhoVetorizador.vazio(vetor));
+    }
+}
@@ -1,7 +1,120 @@
+const http = require("http");
+const https = require("https");
+
 const DEFAULT_PROMPT =
   "Analise o seguinte sonho e me diga seu possível significado com base em interpretações comuns da simbologia dos sonhos. Seja objetivo e considere aspectos psicológicos e simbólicos tradicionais.";
 
 const FALLBACK_MODELS = ["gemini-2.0-flash", "gemini-1.5-flash-latest", "gemini-1.5-flash"];
+const DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com";
+// Abaixo do readTimeout de 30 s do app, para ele receber o 504 em vez de desistir antes.
+const DEFAULT_TIMEOUT_MS = 20000;
+
+// Estado de módulo: sobrevive entre invocações enquanto a instância da função estiver quente.
+const moduleLoadedAt = Date.now();
+let config = null;
+const unavailableModels = new Set();
+const stats = {
+  invocations: 0,
+  coldInvocations: 0,
+  newConnections: 0,
+  reusedConnections: 0,
+  retriedResets: 0,
+};
+
+// Configuração e agente HTTP criados uma única vez, na primeira invocação que precisar deles.
+function getConfig() {
+  if (config) return config;
+
+  const baseUrl = new URL(process.env.GEMINI_API_BASE_URL || DEFAULT_BASE_URL);
+  const transport = baseUrl.protocol === "http:" ? http : https;
+  const configuredModel = process.env.GEMINI_MODEL || "gemini-2.0-flash";
+
+  config = {
+    apiKey: process.env.GEMINI_API_KEY,
+    baseUrl,
+    transport,
+    // Keep-alive: o fallback entre modelos e as próximas invocações reaproveitam a mesma conexão TLS.
+    agent: new transport.Agent({ keepAlive: true, keepAliveMsecs: 30000, maxSockets: 8 }),
+    modelsToTry: [configuredModel, ...FALLBACK_MODELS.filter((m) => m !== configuredModel)],
+    timeoutMs: Number(process.env.GEMINI_TIMEOUT_MS) || DEFAULT_TIMEOUT_MS,
+  };
+  return config;
+}
+
+function availableModels() {
+  const { modelsToTry } = getConfig();
+  const models = modelsToTry.filter((m) => !unavailableModels.has(m));
+  // Se todos foram marcados como indisponíveis, tenta de novo a lista completa.
+  return models.length ? models : modelsToTry;
+}
+
+class UpstreamTimeoutError extends Error {
+  constructor(timeoutMs) {
+    super(`O Gemini não respondeu em ${timeoutMs} ms.`);
+    this.name = "UpstreamTimeoutError";
+  }
+}
+
+function requestJson({ method, path, body }) {
+  const { baseUrl, transport, agent, timeoutMs } = getConfig();
+  const payload = body ? JSON.stringify(body) : null;
+
+  const attempt = (isRetry) =>
+    new Promise((resolve, reject) => {
+      const req = transport.request(
+        {
+          protocol: baseUrl.protocol,
+          hostname: baseUrl.hostname,
+          port: baseUrl.port || undefined,
+          path,
+          method,
+          agent,
+          headers: payload
+            ? { "Content-Type": "application/json", "Content-Length": Buffer.byteLength(payload) }
+            : {},
+        },
+        (response) => {
+          const chunks = [];
+          response.on("data", (chunk) => chunks.push(chunk));
+          response.on("end", () => {
+            const text = Buffer.concat(chunks).toString("utf8");
+            let data = null;
+            try {
+              data = text ? JSON.parse(text) : null;
+            } catch (error) {
+              data = { error: { message: text } };
+            }
+            resolve({ status: response.statusCode, ok: response.statusCode >= 200 && response.statusCode < 300, data });
+          });
+          response.on("error", reject);
+        }
+      );
+
+      req.on("socket", () => {
+        if (req.reusedSocket) {
+          stats.reusedConnections += 1;
+        } else {
+          stats.newConnections += 1;
+        }
+      });
+      // Socket parado por timeoutMs (conexão, envio ou resposta): aborta e libera o socket do agente
+      req.setTimeout(timeoutMs, () => req.destroy(new UpstreamTimeoutError(timeoutMs)));
+      req.on("error", (error) => {
+        // O servidor pode fechar uma conexão ociosa do keep-alive no instante em que a reusamos.
+        // Como na documentação do http do Node, tenta uma vez de novo, já numa conexão nova.
+        if (!isRetry && req.reusedSocket && error.code === "ECONNRESET") {
+          stats.retriedResets += 1;
+          resolve(attempt(true));
+          return;
+        }
+        reject(error);
+      });
+      if (payload) req.write(payload);
+      req.end();
+    });
+
+  return attempt(false);
+}
 
 function extractGeminiText(data) {
   return data?.candidates?.[0]?.content?.parts
@@ -36,14 +149,18 @@ function pickUniqueNumbers({ min, max, count, rng }) {
   return Array.from(selected).sort((a, b) => a - b);
 }
 
-function formatLuckyNumbers(sonho, prompt) {
+function generateLuckyNumbers(sonho, prompt) {
   const seed = hashString(`${sonho}|${prompt || ""}`);
   const rng = createSeededRng(seed);
 
-  const lotofacil = pickUniqueNumbers({ min: 1, max: 25, count: 15, rng });
-  const megaSena = pickUniqueNumbers({ min: 1, max: 60, count: 6, rng });
-  const diaDeSorte = pickUniqueNumbers({ min: 1, max: 31, count: 7, rng });
+  return {
+    lotofacil: pickUniqueNumbers({ min: 1, max: 25, count: 15, rng }),
+    megaSena: pickUniqueNumbers({ min: 1, max: 60, count: 6, rng }),
+    diaDeSorte: pickUniqueNumbers({ min: 1, max: 31, count: 7, rng }),
+  };
+}
 
+function formatLuckyNumbers({ lotofacil, megaSena, diaDeSorte }) {
   const formatList = (numbers) => numbers.map((n) => String(n).padStart(2, "0")).join(", ");
 
   return [
@@ -57,27 +174,64 @@ function formatLuckyNumbers(sonho, prompt) {
 }
 
 async function callGemini({ apiKey, modelName, promptFinal, sonhoLimpo }) {
-  const geminiApiUrl = `https://generativelanguage.googleapis.com/v1beta/models/${modelName}:generateContent?key=${apiKey}`;
-
-  const geminiResponse = await fetch(geminiApiUrl, {
+  const { status, ok, data } = await requestJson({
     method: "POST",
-    headers: { "Content-Type": "application/json" },
-    body: JSON.stringify({
+    path: `/v1beta/models/${modelName}:generateContent?key=${encodeURIComponent(apiKey)}`,
+    body: {
       contents: [{ parts: [{ text: `${promptFinal}\n\nSonho: ${sonhoLimpo}` }] }],
-    }),
+    },
   });
 
-  const geminiData = await geminiResponse.json();
-  return { geminiResponse, geminiData };
+  return { geminiResponse: { ok, status }, geminiData: data };
 }
 
-module.exports = async (req, res) => {
+// Abre a conexão com o Gemini e descobre quais modelos existem, sem gastar uma geração.
+async function warmUp() {
+  const { apiKey } = getConfig();
+  if (!apiKey) return { connected: false };
+
+  const { ok, data } = await requestJson({
+    method: "GET",
+    path: `/v1beta/models?key=${encodeURIComponent(apiKey)}&pageSize=1000`,
+  });
+
+  if (ok && Array.isArray(data?.models)) {
+    const existing = new Set(data.models.map((m) => String(m.name || "").replace(/^models\//, "")));
+    for (const model of getConfig().modelsToTry) {
+      if (existing.has(model)) {
+        unavailableModels.delete(model);
+      } else {
+        unavailableModels.add(model);
+      }
+    }
+  }
+  return { connected: ok };
+}
+
+function snapshotStats() {
+  return {
+    ...stats,
+    warmInvocations: stats.invocations - stats.coldInvocations,
+    unavailableModels: Array.from(unavailableModels),
+    uptimeMs: Date.now() - moduleLoadedAt,
+  };
+}
+
+async function handler(req, res) {
+  if (req.method === "GET" && req.query?.warmup !== undefined) {
+    try {
+      const warm = await warmUp();
+      return res.status(200).json({ warm: true, ...warm, stats: snapshotStats() });
+    } catch (error) {
+      return res.status(200).json({ warm: true, connected: false, details: error?.message, stats: snapshotStats() });
+    }
+  }
+
   if (req.method !== "POST") {
     return res.status(405).json({ error: "Método não permitido. Use POST." });
   }
 
-  const apiKey = process.env.GEMINI_API_KEY;
-  const configuredModel = process.env.GEMINI_MODEL || "gemini-2.0-flash";
+  const { apiKey } = getConfig();
 
   if (!apiKey) {
     return res
@@ -97,7 +251,7 @@ module.exports = async (req, res) => {
   }
 
   const promptFinal = (typeof prompt === "string" && prompt.trim()) || DEFAULT_PROMPT;
-  const modelsToTry = [configuredModel, ...FALLBACK_MODELS.filter((m) => m !== configuredModel)];
+  const modelsToTry = availableModels();
 
   try {
     let lastError = null;
@@ -120,6 +274,8 @@ module.exports = async (req, res) => {
         lastError = { status: geminiResponse.status, details, modelName };
 
         if (modelNotFound) {
+          // Lembra enquanto a instância estiver quente, para não repetir a tentativa
+          unavailableModels.add(modelName);
           continue;
         }
 
@@ -141,9 +297,12 @@ module.exports = async (req, res) => {
         continue;
       }
 
-      const numerosDaSorte = formatLuckyNumbers(sonhoLimpo, promptFinal);
+      // 'significado' continua com o texto montado, para as versões do app que só leem esse campo
+      const numerosDaSorte = generateLuckyNumbers(sonhoLimpo, promptFinal);
       return res.status(200).json({
-        significado: `${significado}\n${numerosDaSorte}`,
+        significado: `${significado}\n${formatLuckyNumbers(numerosDaSorte)}`,
+        interpretacao: significado,
+        numerosDaSorte,
         model: modelName,
       });
     }
@@ -154,9 +313,46 @@ module.exports = async (req, res) => {
       triedModels: modelsToTry,
     });
   } catch (error) {
+    if (error instanceof UpstreamTimeoutError) {
+      return res.status(504).json({
+        error: "A API do Gemini demorou demais para responder.",
+        details: error.message,
+      });
+    }
     return res.status(500).json({
       error: "Falha inesperada ao interpretar o sonho.",
       details: error?.message || "Erro desconhecido",
     });
   }
-};
\ No newline at end of file
+}
+
+module.exports = async (req, res) => {
+  const startedAt = process.hrtime.bigint();
+  const cold = stats.invocations === 0;
+  stats.invocations += 1;
+  if (cold) stats.coldInvocations += 1;
+  const connectionsBefore = stats.newConnections + stats.reusedConnections;
+  const newBefore = stats.newConnections;
+
+  res.setHeader("X-Invocation", cold ? "cold" : "warm");
+  try {
+    return await handler(req, res);
+  } finally {
+    const durationMs = Number(process.hrtime.bigint() - startedAt) / 1e6;
+    const upstreamRequests = stats.newConnections + stats.reusedConnections - connectionsBefore;
+    const newConnections = stats.newConnections - newBefore;
+    console.log(
+      JSON.stringify({
+        metric: "interpretar-sonho.invocation",
+        invocation: cold ? "cold" : "warm",
+        durationMs: Math.round(durationMs * 10) / 10,
+        sinceModuleLoadMs: Date.now() - moduleLoadedAt,
+        upstreamRequests,
+        newConnections,
+        reusedConnections: upstreamRequests - newConnections,
+      })
+    );
+  }
+};
+
+module.exports.stats = snapshotStats;
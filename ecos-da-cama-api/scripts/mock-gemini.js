@@ -0,0 +1,67 @@
+// Servidor local que imita a API do Gemini, para testar a função sem rede e sem chave real.
+//   node scripts/mock-gemini.js [porta]
+// Modelos em MOCK_MISSING_MODELS (separados por vírgula) respondem 404 "not found".
+const http = require("http");
+
+function startMockGemini({ port = 0, latencyMs = 40, missingModels = [] } = {}) {
+  const connections = { total: 0 };
+  // Com resetNext = true, a próxima requisição tem a conexão derrubada sem resposta (ECONNRESET no cliente).
+  const faults = { resetNext: false };
+
+  const server = http.createServer((req, res) => {
+    if (faults.resetNext) {
+      faults.resetNext = false;
+      req.socket.destroy();
+      return undefined;
+    }
+    const url = new URL(req.url, "http://localhost");
+    const send = (status, body) =>
+      setTimeout(() => {
+        res.writeHead(status, { "Content-Type": "application/json" });
+        res.end(JSON.stringify(body));
+      }, latencyMs);
+
+    if (req.method === "GET" && url.pathname === "/v1beta/models") {
+      const names = ["gemini-2.0-flash", "gemini-1.5-flash-latest", "gemini-1.5-flash"]
+        .filter((m) => !missingModels.includes(m))
+        .map((m) => ({ name: `models/${m}` }));
+      return send(200, { models: names });
+    }
+
+    const match = url.pathname.match(/^\/v1beta\/models\/([^:]+):generateContent$/);
+    if (req.method === "POST" && match) {
+      req.resume();
+      req.on("end", () => {
+        if (missingModels.includes(match[1])) {
+          return send(404, { error: { message: `models/${match[1]} is not found for API version v1beta` } });
+        }
+        return send(200, {
+          candidates: [{ content: { parts: [{ text: `Interpretação simulada (${match[1]}).` }] } }],
+        });
+      });
+      return undefined;
+    }
+
+    return send(404, { error: { message: "rota desconhecida" } });
+  });
+
+  server.on("connection", () => {
+    connections.total += 1;
+  });
+
+  return new Promise((resolve) => {
+    server.listen(port, "127.0.0.1", () => {
+      resolve({ server, port: server.address().port, connections, faults });
+    });
+  });
+}
+
+module.exports = { startMockGemini };
+
+if (require.main === module) {
+  const port = Number(process.argv[2] || 8788);
+  const missingModels = (process.env.MOCK_MISSING_MODELS || "").split(",").filter(Boolean);
+  startMockGemini({ port, missingModels }).then(({ port: p }) => {
+    console.log(`Mock do Gemini em http://127.0.0.1:${p}`);
+  });
+}
@@ -0,0 +1,78 @@
+// Mede invocações fria e quentes da função contra o mock local e confere o reuso de conexões.
+// No fim, o mock derruba uma conexão reaproveitada e a função deve repetir a chamada uma vez.
+//   npm run verificar:keepalive
+const { startMockGemini } = require("./mock-gemini");
+
+function fakeResponse() {
+  const res = { statusCode: 200, headers: {}, body: null };
+  res.setHeader = (name, value) => {
+    res.headers[name.toLowerCase()] = value;
+  };
+  res.status = (code) => {
+    res.statusCode = code;
+    return res;
+  };
+  res.json = (body) => {
+    res.body = body;
+    return res;
+  };
+  return res;
+}
+
+async function invoke(handler, req) {
+  const res = fakeResponse();
+  const startedAt = process.hrtime.bigint();
+  await handler(req, res);
+  return { res, ms: Number(process.hrtime.bigint() - startedAt) / 1e6 };
+}
+
+async function main() {
+  // O modelo configurado "não existe" no mock, para exercitar o fallback
+  const mock = await startMockGemini({ missingModels: ["gemini-2.0-flash"] });
+  process.env.GEMINI_API_BASE_URL = `http://127.0.0.1:${mock.port}`;
+  process.env.GEMINI_API_KEY = "chave-de-teste";
+  process.env.GEMINI_MODEL = "gemini-2.0-flash";
+
+  const originalLog = console.log;
+  console.log = () => {};
+  const handler = require("../api/interpretar-sonho");
+
+  const rows = [];
+  const post = { method: "POST", body: { sonho: "Sonhei que voava sobre o mar." } };
+  for (let i = 0; i < 5; i += 1) {
+    const { res, ms } = await invoke(handler, post);
+    rows.push({ invocacao: res.headers["x-invocation"], status: res.statusCode, modelo: res.body?.model, ms: ms.toFixed(1) });
+  }
+  const warm = await invoke(handler, { method: "GET", query: { warmup: "" } });
+  const connectionsBeforeReset = mock.connections.total;
+  mock.faults.resetNext = true;
+  const reset = await invoke(handler, post);
+  console.log = originalLog;
+
+  console.table(rows);
+  const stats = handler.stats();
+  console.log("Estatísticas da função:", stats);
+  console.log("Conexões TCP aceitas pelo mock:", mock.connections.total);
+  console.log("Warm-up:", warm.res.body.connected ? "ok" : "falhou");
+  console.log("Conexão derrubada pelo mock:", `status ${reset.res.statusCode}, ${stats.retriedResets} nova tentativa`);
+
+  mock.server.close();
+  const ok =
+    rows[0].invocacao === "cold" &&
+    rows.slice(1).every((r) => r.invocacao === "warm" && r.status === 200) &&
+    connectionsBeforeReset === 1 &&
+    stats.reusedConnections > 0 &&
+    reset.res.statusCode === 200 &&
+    stats.retriedResets === 1;
+  console.log(
+    ok
+      ? "OK: uma única conexão reaproveitada entre invocações; ECONNRESET no reuso repetido uma vez."
+      : "FALHOU: veja os números acima."
+  );
+  process.exit(ok ? 0 : 1);
+}
+
+main().catch((error) => {
+  console.error(error);
+  process.exit(1);
+});
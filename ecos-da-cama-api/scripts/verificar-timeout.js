@@ -0,0 +1,40 @@
+// Confere que um Gemini lento vira 504 dentro do prazo, em vez de prender a função até o limite da Vercel.
+//   npm run verificar:timeout
+const { startMockGemini } = require("./mock-gemini");
+
+async function main() {
+  const mock = await startMockGemini({ latencyMs: 2000 });
+  process.env.GEMINI_API_BASE_URL = `http://127.0.0.1:${mock.port}`;
+  process.env.GEMINI_API_KEY = "chave-de-teste";
+  process.env.GEMINI_TIMEOUT_MS = "300";
+
+  const originalLog = console.log;
+  console.log = () => {};
+  const handler = require("../api/interpretar-sonho");
+
+  const res = { statusCode: 200, body: null, setHeader: () => {} };
+  res.status = (code) => {
+    res.statusCode = code;
+    return res;
+  };
+  res.json = (body) => {
+    res.body = body;
+    return res;
+  };
+
+  const startedAt = Date.now();
+  await handler({ method: "POST", body: { sonho: "Sonhei que o relógio parou." } }, res);
+  const ms = Date.now() - startedAt;
+  console.log = originalLog;
+
+  mock.server.close();
+  const ok = res.statusCode === 504 && ms < 1500;
+  console.log(`status ${res.statusCode} em ${ms} ms:`, res.body);
+  console.log(ok ? "OK: pedido abortado e respondido com 504." : "FALHOU: veja os números acima.");
+  process.exit(ok ? 0 : 1);
+}
+
+main().catch((error) => {
+  console.error(error);
+  process.exit(1);
+});
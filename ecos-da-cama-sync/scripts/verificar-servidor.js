@@ -0,0 +1,159 @@
+// Verifica o servidor de sincronização com dois clientes mínimos em JS, num servidor local, sem rede externa.
+//   npm run verificar
+// Confere o lado do servidor: lotes e cursor do pull, retomada pelo checkpoint, a edição mais recente
+// prevalecendo no servidor, a senha do diário (401) e o bloqueio por tentativas (429).
+// Os clientes daqui só imitam o protocolo; não rodam o código do app. A fila de envio, os triggers e
+// a regra "última escrita vence" do app são testados em Java (EcosDaCamaDBTest e AlteracaoSyncTest).
+const fs = require("fs");
+const os = require("os");
+const path = require("path");
+const zlib = require("zlib");
+
+process.env.SYNC_DATA_DIR = fs.mkdtempSync(path.join(os.tmpdir(), "ecos-sync-"));
+const { criarServidor } = require("../servidor");
+
+const LOTE = 200;
+const DIARIO = "diario-de-teste";
+const SENHA = "senha-de-teste";
+
+// Cliente mínimo que fala o mesmo protocolo do app (fila por seq_local e checkpoints)
+class Aparelho {
+  constructor(nome, base, senha = SENHA) {
+    this.nome = nome;
+    this.base = base;
+    this.senha = senha;
+    this.sonhos = new Map();
+    this.seq = 0;
+    this.pushCheckpoint = 0;
+    this.pullCursor = 0;
+    this.bytesEnviados = 0;
+  }
+
+  escrever(uuid, titulo, atualizadoEm = Date.now(), excluido = false) {
+    const atual = this.sonhos.get(uuid);
+    this.seq += 1;
+    this.sonhos.set(uuid, {
+      uuid, titulo, excluido, atualizadoEm,
+      versao: (atual ? atual.versao : 0) + 1,
+      seqLocal: this.seq,
+    });
+  }
+
+  async chamar(method, caminho, corpo) {
+    const headers = { "Accept-Encoding": "gzip", Authorization: `Bearer ${this.senha}` };
+    let body;
+    if (corpo) {
+      body = zlib.gzipSync(JSON.stringify(corpo));
+      headers["Content-Type"] = "application/json";
+      headers["Content-Encoding"] = "gzip";
+      this.bytesEnviados += body.length;
+    }
+    const resposta = await fetch(`${this.base}${caminho}`, { method, headers, body });
+    if (!resposta.ok) throw new Error(`${resposta.status} ${await resposta.text()}`);
+    return resposta.json();
+  }
+
+  async push({ maxLotes = Infinity } = {}) {
+    let enviadas = 0;
+    for (let lote = 0; lote < maxLotes; lote += 1) {
+      const pendentes = [...this.sonhos.values()]
+        .filter((s) => s.seqLocal > this.pushCheckpoint)
+        .sort((a, b) => a.seqLocal - b.seqLocal)
+        .slice(0, LOTE);
+      if (!pendentes.length) break;
+      const alteracoes = pendentes.map(({ seqLocal, ...a }) => a);
+      await this.chamar("POST", `/v1/diarios/${DIARIO}/alteracoes?dispositivo=${this.nome}`, { alteracoes });
+      this.pushCheckpoint = pendentes[pendentes.length - 1].seqLocal;
+      enviadas += pendentes.length;
+    }
+    return enviadas;
+  }
+
+  async pull() {
+    let recebidas = 0;
+    for (;;) {
+      const r = await this.chamar(
+        "GET",
+        `/v1/diarios/${DIARIO}/alteracoes?desde=${this.pullCursor}&limite=${LOTE}&dispositivo=${this.nome}`
+      );
+      for (const remota of r.alteracoes) {
+        const local = this.sonhos.get(remota.uuid);
+        if (local && local.atualizadoEm >= remota.atualizadoEm) continue;
+        this.sonhos.set(remota.uuid, { ...remota, seqLocal: 0 });
+        recebidas += 1;
+      }
+      this.pullCursor = r.cursor;
+      if (!r.temMais) break;
+    }
+    return recebidas;
+  }
+
+  async sincronizar() {
+    const enviadas = await this.push();
+    const recebidas = await this.pull();
+    return { enviadas, recebidas };
+  }
+
+  visiveis() {
+    return [...this.sonhos.values()].filter((s) => !s.excluido).length;
+  }
+}
+
+function verificar(condicao, descricao) {
+  console.log(`${condicao ? "ok   " : "FALHA"} ${descricao}`);
+  if (!condicao) process.exitCode = 1;
+}
+
+async function main() {
+  const servidor = criarServidor().listen(0);
+  await new Promise((r) => servidor.once("listening", r));
+  const base = `http://127.0.0.1:${servidor.address().port}`;
+
+  const celular = new Aparelho("celular", base);
+  const tablet = new Aparelho("tablet", base);
+
+  for (let i = 0; i < 450; i += 1) celular.escrever(`s${i}`, `Sonho ${i}`, 1000 + i);
+
+  // Envio interrompido depois do primeiro lote: o checkpoint garante que nada é reenviado
+  verificar((await celular.push({ maxLotes: 1 })) === LOTE, "primeiro lote de 200 enviado antes da interrupção");
+  const primeiraRodada = await celular.sincronizar();
+  verificar(primeiraRodada.enviadas === 250, `retomada envia só os 250 restantes (${primeiraRodada.enviadas})`);
+
+  const recebidoTablet = await tablet.sincronizar();
+  verificar(recebidoTablet.recebidas === 450 && tablet.visiveis() === 450, "tablet recebe o diário completo em lotes");
+
+  // Nada mudou: a próxima sincronização não transfere alterações
+  const ociosa = await celular.sincronizar();
+  verificar(ociosa.enviadas === 0 && ociosa.recebidas === 0, "sincronização sem mudanças não envia nem recebe nada");
+
+  // Conflito: os dois editam o mesmo sonho; a edição mais recente vence nos dois aparelhos
+  celular.escrever("s7", "Editado no celular", 5000);
+  tablet.escrever("s7", "Editado no tablet", 6000);
+  tablet.escrever("s8", "Apagado no tablet", 6000, true);
+  await celular.sincronizar();
+  await tablet.sincronizar();
+  await celular.sincronizar();
+  verificar(
+    celular.sonhos.get("s7").titulo === "Editado no tablet" && tablet.sonhos.get("s7").titulo === "Editado no tablet",
+    "última escrita vence nos dois aparelhos"
+  );
+  verificar(celular.visiveis() === 449 && tablet.visiveis() === 449, "exclusão propagada");
+
+  // Senha errada não lê nem grava; depois de várias tentativas o IP é bloqueado por um tempo
+  const intruso = new Aparelho("intruso", base, "senha-errada");
+  const erros = [];
+  for (let i = 0; i < 11; i += 1) {
+    erros.push(await intruso.pull().then(() => "200", (error) => error.message.slice(0, 3)));
+  }
+  verificar(erros.slice(0, 10).every((e) => e === "401"), "senha errada recebe 401");
+  verificar(erros[10] === "429", "IP bloqueado com 429 após 10 senhas erradas");
+
+  console.log(`bytes enviados (gzip): celular=${celular.bytesEnviados} tablet=${tablet.bytesEnviados}`);
+  servidor.close();
+  fs.rmSync(process.env.SYNC_DATA_DIR, { recursive: true, force: true });
+}
+
+main().catch((error) => {
+  console.error(error);
+  process.exit(1);
+});
@@ -0,0 +1,282 @@
+// Servidor de sincronização de referência do Ecos da Cama.
+// Sem dependências: roda com `node servidor.js` em qualquer máquina da rede (ou no próprio PC,
+// acessível pelo emulador em http://10.0.2.2:8787) e guarda cada diário num arquivo JSON.
+// HTTP puro só serve para o debug: o build release do app só aceita um servidor HTTPS
+// (-PsyncApiUrlRelease), por exemplo este atrás de um proxy reverso com TLS.
+//
+// Acesso: toda chamada leva "Authorization: Bearer <senha do diário>". O primeiro aparelho que
+// usa um código define a senha (guardada só como hash scrypt); os demais precisam da mesma.
+// Um IP com SENHA_MAX_FALHAS senhas erradas em SENHA_JANELA_MS recebe 429 até a janela passar.
+// Limitações: a contagem fica em memória (zera ao reiniciar) e quem criar um código antes do
+// dono fica com ele, então o código ainda não deve ser óbvio.
+//
+// Protocolo (JSON, corpo opcionalmente em gzip nos dois sentidos):
+//   POST /v1/diarios/:codigo/alteracoes?dispositivo=ID   { alteracoes: [...] }
+//        -> { aceitas, descartadas, cursor }
+//   GET  /v1/diarios/:codigo/alteracoes?desde=CURSOR&limite=200&dispositivo=ID
+//        -> { alteracoes: [...], cursor, temMais }
+// Cada alteração: { uuid, versao, atualizadoEm, excluido, titulo, sonho, data, hora, significado }.
+// Conflitos: vence o maior atualizadoEm (empate: maior versao). O cursor é a sequência do servidor.
+const crypto = require("crypto");
+const fs = require("fs");
+const http = require("http");
+const path = require("path");
+const zlib = require("zlib");
+
+const PORT = Number(process.env.PORT || 8787);
+const DATA_DIR = path.resolve(process.env.SYNC_DATA_DIR || path.join(__dirname, "dados"));
+const LIMITE_PADRAO = 200;
+const LIMITE_MAXIMO = 500;
+const CORPO_MAXIMO = 8 * 1024 * 1024;
+const CODIGO_VALIDO = /^[A-Za-z0-9_-]{4,64}$/;
+const SENHA_MIN = 8;
+const SENHA_MAX = 128;
+const SENHA_MAX_FALHAS = 10;
+const SENHA_JANELA_MS = 15 * 60 * 1000;
+
+const diarios = new Map();
+const senhasConferidas = new Map(); // código -> sha256 da senha já conferida com o scrypt
+const falhasPorIp = new Map();      // ip -> { total, desde }
+
+function arquivoDoDiario(codigo) {
+  return path.join(DATA_DIR, `${codigo}.json`);
+}
+
+function carregarDiario(codigo) {
+  let diario = diarios.get(codigo);
+  if (diario) return diario;
+
+  try {
+    diario = JSON.parse(fs.readFileSync(arquivoDoDiario(codigo), "utf8"));
+  } catch (error) {
+    if (error.code !== "ENOENT") throw error;
+    diario = { seq: 0, registros: {} };
+  }
+  diarios.set(codigo, diario);
+  return diario;
+}
+
+// Grava num arquivo temporário e renomeia, para nunca deixar um diário pela metade no disco
+function salvarDiario(codigo, diario) {
+  fs.mkdirSync(DATA_DIR, { recursive: true });
+  const destino = arquivoDoDiario(codigo);
+  const temporario = `${destino}.${process.pid}.tmp`;
+  fs.writeFileSync(temporario, JSON.stringify(diario));
+  fs.renameSync(temporario, destino);
+}
+
+function venceAtual(nova, atual) {
+  if (!atual) return true;
+  if (nova.atualizadoEm !== atual.atualizadoEm) return nova.atualizadoEm > atual.atualizadoEm;
+  return (nova.versao || 0) > (atual.versao || 0);
+}
+
+function normalizar(alteracao) {
+  if (!alteracao || typeof alteracao.uuid !== "string" || !Number.isFinite(alteracao.atualizadoEm)) {
+    return null;
+  }
+  const registro = {
+    uuid: alteracao.uuid,
+    versao: Number(alteracao.versao) || 1,
+    atualizadoEm: alteracao.atualizadoEm,
+    excluido: Boolean(alteracao.excluido),
+  };
+  if (!registro.excluido) {
+    for (const campo of ["titulo", "sonho", "data", "hora", "significado"]) {
+      registro[campo] = typeof alteracao[campo] === "string" ? alteracao[campo] : "";
+    }
+  }
+  return registro;
+}
+
+function receberAlteracoes(codigo, dispositivo, alteracoes) {
+  const diario = carregarDiario(codigo);
+  let aceitas = 0;
+  let descartadas = 0;
+
+  for (const bruta of alteracoes) {
+    const nova = normalizar(bruta);
+    if (!nova || !venceAtual(nova, diario.registros[nova.uuid])) {
+      descartadas += 1;
+      continue;
+    }
+    diario.seq += 1;
+    diario.registros[nova.uuid] = { ...nova, seq: diario.seq, origem: dispositivo };
+    aceitas += 1;
+  }
+
+  if (aceitas > 0) salvarDiario(codigo, diario);
+  return { aceitas, descartadas, cursor: diario.seq };
+}
+
+// As próprias alterações do dispositivo são puladas, mas o cursor avança sobre elas
+function listarAlteracoes(codigo, dispositivo, desde, limite) {
+  const diario = carregarDiario(codigo);
+  const posteriores = Object.values(diario.registros)
+    .filter((r) => r.seq > desde)
+    .sort((a, b) => a.seq - b.seq);
+
+  const alteracoes = [];
+  let cursor = desde;
+  let examinadas = 0;
+  for (const registro of posteriores) {
+    if (alteracoes.length >= limite) break;
+    examinadas += 1;
+    cursor = registro.seq;
+    if (registro.origem === dispositivo) continue;
+    const { seq, origem, ...alteracao } = registro;
+    alteracoes.push(alteracao);
+  }
+
+  return { alteracoes, cursor, temMais: examinadas < posteriores.length };
+}
+
+function hashSenha(senha, sal) {
+  return crypto.scryptSync(senha, Buffer.from(sal, "base64"), 32);
+}
+
+function resumoSenha(senha) {
+  return crypto.createHash("sha256").update(senha).digest();
+}
+
+// Confere a senha do diário; num diário sem senha (novo ou de antes da senha existir), ela é definida agora
+function autorizar(codigo, senha) {
+  const diario = carregarDiario(codigo);
+  if (!diario.acesso) {
+    const sal = crypto.randomBytes(16).toString("base64");
+    diario.acesso = { sal, hash: hashSenha(senha, sal).toString("base64") };
+    salvarDiario(codigo, diario);
+    senhasConferidas.set(codigo, resumoSenha(senha));
+    return true;
+  }
+
+  const conferida = senhasConferidas.get(codigo);
+  if (conferida && crypto.timingSafeEqual(conferida, resumoSenha(senha))) return true;
+
+  const esperado = Buffer.from(diario.acesso.hash, "base64");
+  if (!crypto.timingSafeEqual(esperado, hashSenha(senha, diario.acesso.sal))) return false;
+  senhasConferidas.set(codigo, resumoSenha(senha));
+  return true;
+}
+
+function bloqueado(ip) {
+  const falhas = falhasPorIp.get(ip);
+  if (!falhas) return false;
+  if (Date.now() - falhas.desde > SENHA_JANELA_MS) {
+    falhasPorIp.delete(ip);
+    return false;
+  }
+  return falhas.total >= SENHA_MAX_FALHAS;
+}
+
+function registrarFalha(ip) {
+  const falhas = falhasPorIp.get(ip);
+  if (!falhas || Date.now() - falhas.desde > SENHA_JANELA_MS) {
+    falhasPorIp.set(ip, { total: 1, desde: Date.now() });
+  } else {
+    falhas.total += 1;
+  }
+}
+
+function lerCorpo(req) {
+  return new Promise((resolve, reject) => {
+    const partes = [];
+    let tamanho = 0;
+    req.on("data", (parte) => {
+      tamanho += parte.length;
+      if (tamanho > CORPO_MAXIMO) {
+        reject(Object.assign(new Error("Corpo da requisição grande demais."), { status: 413 }));
+        req.destroy();
+        return;
+      }
+      partes.push(parte);
+    });
+    req.on("end", () => {
+      try {
+        let corpo = Buffer.concat(partes);
+        if ((req.headers["content-encoding"] || "").includes("gzip")) corpo = zlib.gunzipSync(corpo);
+        resolve(corpo.length ? JSON.parse(corpo.toString("utf8")) : {});
+      } catch (error) {
+        reject(Object.assign(new Error("JSON inválido."), { status: 400 }));
+      }
+    });
+    req.on("error", reject);
+  });
+}
+
+function responder(req, res, status, corpo, extras = {}) {
+  let dados = Buffer.from(JSON.stringify(corpo));
+  const headers = { "Content-Type": "application/json; charset=utf-8", ...extras };
+  if (dados.length > 1024 && (req.headers["accept-encoding"] || "").includes("gzip")) {
+    dados = zlib.gzipSync(dados);
+    headers["Content-Encoding"] = "gzip";
+  }
+  headers["Content-Length"] = dados.length;
+  res.writeHead(status, headers);
+  res.end(dados);
+}
+
+async function tratar(req, res) {
+  const url = new URL(req.url, "http://localhost");
+
+  if (req.method === "GET" && url.pathname === "/saude") {
+    return responder(req, res, 200, { ok: true });
+  }
+
+  const rota = url.pathname.match(/^\/v1\/diarios\/([^/]+)\/alteracoes$/);
+  if (!rota) return responder(req, res, 404, { error: "Rota não encontrada." });
+
+  const codigo = decodeURIComponent(rota[1]);
+  if (!CODIGO_VALIDO.test(codigo)) {
+    return responder(req, res, 400, { error: "Código do diário inválido (4 a 64 letras, números, - ou _)." });
+  }
+
+  const ip = req.socket.remoteAddress || "";
+  if (bloqueado(ip)) {
+    const espera = Math.ceil((falhasPorIp.get(ip).desde + SENHA_JANELA_MS - Date.now()) / 1000);
+    return responder(req, res, 429, { error: "Muitas senhas erradas. Tente mais tarde." }, { "Retry-After": espera });
+  }
+  const senha = (req.headers.authorization || "").replace(/^Bearer /, "");
+  if (senha.length < SENHA_MIN || senha.length > SENHA_MAX) {
+    return responder(req, res, 401, { error: `Informe a senha do diário (${SENHA_MIN} a ${SENHA_MAX} caracteres).` });
+  }
+  if (!autorizar(codigo, senha)) {
+    registrarFalha(ip);
+    return responder(req, res, 401, { error: "Senha do diário incorreta." });
+  }
+
+  const dispositivo = url.searchParams.get("dispositivo") || "";
+
+  if (req.method === "POST") {
+    const corpo = await lerCorpo(req);
+    if (!Array.isArray(corpo.alteracoes) || corpo.alteracoes.length > LIMITE_MAXIMO) {
+      return responder(req, res, 400, { error: `Envie até ${LIMITE_MAXIMO} alterações em 'alteracoes'.` });
+    }
+    return responder(req, res, 200, receberAlteracoes(codigo, dispositivo, corpo.alteracoes));
+  }
+
+  if (req.method === "GET") {
+    const desde = Math.max(0, Number(url.searchParams.get("desde")) || 0);
+    const limite = Math.min(LIMITE_MAXIMO, Math.max(1, Number(url.searchParams.get("limite")) || LIMITE_PADRAO));
+    return responder(req, res, 200, listarAlteracoes(codigo, dispositivo, desde, limite));
+  }
+
+  return responder(req, res, 405, { error: "Método não permitido." });
+}
+
+function criarServidor() {
+  return http.createServer((req, res) => {
+    tratar(req, res).catch((error) => {
+      console.error("Erro na sincronização:", error);
+      responder(req, res, error.status || 500, { error: error.status ? error.message : "Erro interno." });
+    });
+  });
+}
+
+module.exports = { criarServidor, receberAlteracoes, listarAlteracoes };
+
+if (require.main === module) {
+  criarServidor().listen(PORT, () => {
+    console.log(`Servidor de sincronização em http://0.0.0.0:${PORT} (dados em ${DATA_DIR})`);
+  });
+}
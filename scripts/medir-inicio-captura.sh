@@ -0,0 +1,37 @@
+#!/usr/bin/env bash
+# Benchmark de inicialização da captura rápida (do toque até o campo pronto para digitar).
+#
+# Mata o app antes de cada rodada (-S), mede o início a frio com `am start -W` e falha se a
+# mediana passar do alvo. Rode com o app instalado num aparelho ou emulador conectado:
+#   scripts/medir-inicio-captura.sh [rodadas] [alvo_ms]
+# O tempo até reportFullyDrawn() também aparece no logcat ("Fully drawn") e na tela de métricas
+# (inicio.captura_rapida_frio).
+set -euo pipefail
+
+RODADAS="${1:-10}"
+ALVO_MS="${2:-500}"
+COMPONENTE="devandroid.bender.ecosdacama/.view.CapturaRapidaActivity"
+
+tempos=()
+for ((i = 1; i <= RODADAS; i++)); do
+  saida="$(adb shell am start -W -S -n "$COMPONENTE")"
+  total="$(printf '%s\n' "$saida" | awk -F': ' '/TotalTime/ {print $2}' | tr -d '\r')"
+  if [[ -z "$total" ]]; then
+    printf '%s\n' "$saida" >&2
+    echo "Não foi possível ler TotalTime na rodada $i." >&2
+    exit 1
+  fi
+  echo "rodada $i: ${total} ms"
+  tempos+=("$total")
+  adb shell input keyevent KEYCODE_BACK >/dev/null
+  sleep 1
+done
+
+ordenados=($(printf '%s\n' "${tempos[@]}" | sort -n))
+mediana="${ordenados[$((RODADAS / 2))]}"
+echo "mediana: ${mediana} ms (alvo: ${ALVO_MS} ms, mín: ${ordenados[0]} ms, máx: ${ordenados[$((RODADAS - 1))]} ms)"
+
+if ((mediana > ALVO_MS)); then
+  echo "Acima do alvo." >&2
+  exit 1
+fi